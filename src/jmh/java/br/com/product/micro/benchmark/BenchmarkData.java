@@ -0,0 +1,39 @@
+package br.com.product.micro.benchmark;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.memory.InMemoryProductStore;
+
+import java.time.LocalDate;
+import java.util.stream.LongStream;
+
+final class BenchmarkData {
+    static final long FIRST_BAR_CODE = 7_890_000_000_000L;
+    static final long STOCK = Long.MAX_VALUE / 4;
+
+    private BenchmarkData() {
+    }
+
+    static long barCode(int index) {
+        return FIRST_BAR_CODE + index;
+    }
+
+    static Product product(long barCode) {
+        return Product.builder()
+                .name("Product " + barCode)
+                .barCode(barCode)
+                .brand("Benchmark")
+                .weight(1.5)
+                .quantity(STOCK)
+                .value(19.9)
+                .classification("grocery")
+                .description("Benchmark catalog product")
+                .manufacturingDate(LocalDate.of(2025, 1, 1))
+                .expirationDate(LocalDate.of(2030, 1, 1))
+                .build();
+    }
+
+    static void seedCatalog(InMemoryProductStore store, int size) {
+        store.clear();
+        LongStream.range(0, size).forEach(index -> store.insert(product(barCode((int) index))));
+    }
+}
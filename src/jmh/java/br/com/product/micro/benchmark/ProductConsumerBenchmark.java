@@ -0,0 +1,183 @@
+package br.com.product.micro.benchmark;
+
+import br.com.product.micro.cache.ProcessedEventFilter;
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.ProcessedEvent;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.event.consumer.ProcessedEventRegistry;
+import br.com.product.micro.event.consumer.ProductConsumer;
+import br.com.product.micro.event.dto.ItemEventDto;
+import br.com.product.micro.event.dto.PaymentEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.memory.InMemoryProcessedEventStore;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One benchmark per sale and payment listener branch. Every call first puts its sale back into the status the
+ * branch expects through the store, a single map update, so each branch can be replayed on a fixed pool of sales.
+ * Its processed event marker is dropped too, so the branch runs after a Bloom filter hit that the store refutes;
+ * {@code duplicateEvent} measures the replay that is skipped.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductConsumerBenchmark {
+    private static final int SALES_PER_THREAD = 1024;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"3"})
+    private int itemsPerSale;
+
+    private InMemoryProductStore productStore;
+    private InMemoryReservationStore reservationStore;
+    private InMemoryProcessedEventStore processedEventStore;
+    private ProductConsumer productConsumer;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productStore = new InMemoryProductStore();
+        reservationStore = new InMemoryReservationStore();
+        processedEventStore = new InMemoryProcessedEventStore();
+        BenchmarkData.seedCatalog(productStore, catalogSize);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        productConsumer = new ProductConsumer(
+                InMemoryRepositories.products(productStore),
+                InMemoryRepositories.reservations(reservationStore),
+                new ProductCache(meterRegistry, true, 10_000, Duration.ofSeconds(5)),
+                new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                new ProcessedEventRegistry(
+                        InMemoryRepositories.processedEvents(processedEventStore),
+                        new ProcessedEventFilter(1_000_000, 0.01),
+                        Optional.empty(),
+                        meterRegistry,
+                        true
+                ),
+                Duration.ofMinutes(30)
+        );
+    }
+
+    @State(Scope.Thread)
+    public static class Sales {
+        private String[] saleIds;
+        private SaleEventDto[] created;
+        private SaleEventDto[] delivered;
+        private SaleEventDto[] canceled;
+        private PaymentEventDto[] paid;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ProductConsumerBenchmark benchmark) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int thread = benchmark.threads.getAndIncrement();
+
+            saleIds = new String[SALES_PER_THREAD];
+            created = new SaleEventDto[SALES_PER_THREAD];
+            delivered = new SaleEventDto[SALES_PER_THREAD];
+            canceled = new SaleEventDto[SALES_PER_THREAD];
+            paid = new PaymentEventDto[SALES_PER_THREAD];
+
+            for (int index = 0; index < SALES_PER_THREAD; index++) {
+                String saleId = "sale-" + thread + "-" + index;
+                List<ItemEventDto> items = random.ints(benchmark.itemsPerSale, 0, benchmark.catalogSize)
+                        .mapToObj(product -> new ItemEventDto(null, BenchmarkData.barCode(product), 19.9, 1L))
+                        .toList();
+
+                saleIds[index] = saleId;
+                created[index] = new SaleEventDto(saleId, Status.CREATED, items);
+                delivered[index] = new SaleEventDto(saleId, Status.DELIVERED, List.of());
+                canceled[index] = new SaleEventDto(saleId, Status.CANCELED, List.of());
+                paid[index] = new PaymentEventDto(saleId, Status.PAID);
+
+                benchmark.reservationStore.insert(SaleReservation.builder()
+                        .saleId(saleId)
+                        .status(ReservationStatus.RESERVED)
+                        .items(items.stream()
+                                .map(item -> Item.builder()
+                                        .barCode(item.barCode())
+                                        .value(item.value())
+                                        .quantity(item.quantity())
+                                        .build())
+                                .toList())
+                        .build());
+            }
+        }
+
+        private int next() {
+            next = (next + 1) % SALES_PER_THREAD;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void saleCreated(Sales sales) {
+        int sale = sales.next();
+        reservationStore.remove(sales.saleIds[sale]);
+        processedEventStore.deleteById(ProcessedEvent.key(sales.saleIds[sale], Status.CREATED));
+
+        productConsumer.saleListener(sales.created[sale]);
+    }
+
+    @Benchmark
+    public void paymentPaid(Sales sales) {
+        int sale = sales.next();
+        reservationStore.reset(sales.saleIds[sale], ReservationStatus.RESERVED);
+        processedEventStore.deleteById(ProcessedEvent.key(sales.saleIds[sale], Status.PAID));
+
+        productConsumer.paymentListener(sales.paid[sale]);
+    }
+
+    @Benchmark
+    public void saleDelivered(Sales sales) {
+        int sale = sales.next();
+        reservationStore.reset(sales.saleIds[sale], ReservationStatus.PURCHASED);
+        processedEventStore.deleteById(ProcessedEvent.key(sales.saleIds[sale], Status.DELIVERED));
+
+        productConsumer.saleListener(sales.delivered[sale]);
+    }
+
+    /**
+     * Every reservation is seeded with its sale's items, so each call restocks them.
+     */
+    @Benchmark
+    public void saleCanceled(Sales sales) {
+        int sale = sales.next();
+        reservationStore.reset(sales.saleIds[sale], ReservationStatus.RESERVED);
+        processedEventStore.deleteById(ProcessedEvent.key(sales.saleIds[sale], Status.CANCELED));
+
+        productConsumer.saleListener(sales.canceled[sale]);
+    }
+
+    /**
+     * Replays a DELIVERED event that was already applied, leaving the reservation untouched.
+     */
+    @Benchmark
+    public void duplicateEvent(Sales sales) {
+        int sale = sales.next();
+        processedEventStore.insertNew(List.of(ProcessedEvent.of(sales.saleIds[sale], Status.DELIVERED)));
+
+        productConsumer.saleListener(sales.delivered[sale]);
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.product.micro.benchmark;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductLookup;
+import br.com.product.micro.dto.request.PurchaseProductDto;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.service.ProductService;
+import br.com.product.micro.service.ProductStockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * ProductService hot paths over an in-memory catalog. Run with {@code mvn -Pbenchmark verify}; pass
+ * {@code -Djmh.args="ProductServiceBenchmark -prof gc"} to narrow the run.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductServiceBenchmark {
+    private static final int LOOKUPS = 1024;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    @Param({"50"})
+    private int lookupSize;
+
+    private InMemoryProductStore store;
+    private ProductService productService;
+    private List<List<Long>> lookups;
+    private final AtomicLong nextBarCode = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        lookups = IntStream.range(0, LOOKUPS)
+                .mapToObj(lookup -> random.ints(lookupSize, 0, catalogSize)
+                        .mapToObj(BenchmarkData::barCode)
+                        .toList())
+                .toList();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        store = new InMemoryProductStore();
+        BenchmarkData.seedCatalog(store, catalogSize);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductCache productCache = new ProductCache(meterRegistry, cacheEnabled, 10_000, Duration.ofSeconds(5));
+        IProductRepository productRepository = InMemoryRepositories.products(store);
+        ProductStockLedger productStockLedger = new ProductStockLedger(
+                productRepository,
+                new MongoOperationMetrics(meterRegistry, Duration.ofMillis(100), Duration.ofMillis(500)),
+                meterRegistry,
+                false,
+                Duration.ofMillis(2),
+                64,
+                Duration.ofSeconds(1)
+        );
+        productService = new ProductService(productRepository, productCache, productStockLedger, Optional.empty(), 500, 64);
+        nextBarCode.set(BenchmarkData.barCode(catalogSize));
+    }
+
+    @Benchmark
+    public Product getProduct() {
+        return productService.getProduct(randomBarCode());
+    }
+
+    /**
+     * Includes a direct store removal so the catalog does not grow for the length of the iteration.
+     */
+    @Benchmark
+    public Product createProduct() {
+        Product created = productService.createProduct(BenchmarkData.product(nextBarCode.getAndIncrement()));
+        store.deleteById(created.getId());
+
+        return created;
+    }
+
+    @Benchmark
+    public Product removeProductQuantity() {
+        return productService.removeProductQuantity(new PurchaseProductDto(randomBarCode(), 1L));
+    }
+
+    @Benchmark
+    public Page<Product> listProduct() {
+        int page = ThreadLocalRandom.current().nextInt(catalogSize / PAGE_SIZE);
+
+        return productService.listProduct(PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public ProductLookup productsData() {
+        return productService.getProducts(lookups.get(ThreadLocalRandom.current().nextInt(LOOKUPS)));
+    }
+
+    private long randomBarCode() {
+        return BenchmarkData.barCode(ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.product.micro.benchmark;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.service.ProductService;
+import br.com.product.micro.service.ProductStockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of concurrent product reads, each blocking on a simulated MongoDB round trip, served either by a
+ * platform pool sized like Tomcat's default (200 threads) or by one virtual thread per request. The score is
+ * requests per second across the burst.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ThreadModelBenchmark.BURST)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadModelBenchmark {
+    static final int BURST = 2000;
+    private static final int PLATFORM_THREADS = 200;
+
+    public enum ThreadModel {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ThreadModel threadModel;
+
+    @Param({"2"})
+    private int roundTripMillis;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    private ExecutorService executor;
+    private ProductService productService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryProductStore store = new InMemoryProductStore();
+        BenchmarkData.seedCatalog(store, catalogSize);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IProductRepository productRepository = InMemoryRepositories.products(store, Duration.ofMillis(roundTripMillis));
+        ProductCache productCache = new ProductCache(meterRegistry, false, 10_000, Duration.ofSeconds(5));
+        ProductStockLedger productStockLedger = new ProductStockLedger(
+                productRepository,
+                new MongoOperationMetrics(meterRegistry, Duration.ofMillis(100), Duration.ofMillis(500)),
+                meterRegistry,
+                false,
+                Duration.ofMillis(2),
+                64,
+                Duration.ofSeconds(1)
+        );
+        productService = new ProductService(
+                productRepository,
+                productCache,
+                productStockLedger,
+                Optional.empty(),
+                500,
+                64
+        );
+        executor = threadModel == ThreadModel.VIRTUAL
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void getProductBurst() {
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[BURST];
+
+        for (int request = 0; request < BURST; request++) {
+            long barCode = BenchmarkData.barCode(ThreadLocalRandom.current().nextInt(catalogSize));
+            requests[request] = CompletableFuture.supplyAsync(() -> productService.getProduct(barCode), executor);
+        }
+
+        CompletableFuture.allOf(requests).join();
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.product.micro.load;
+
+import br.com.product.micro.ProductMicroserviceApplication;
+import br.com.product.micro.config.MongoIndexConfig;
+import br.com.product.micro.controller.ProductImportController;
+import br.com.product.micro.controller.SaleReservationController;
+import br.com.product.micro.memory.InMemoryProcessedEventStore;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import br.com.product.micro.migration.ProductStockMigration;
+import br.com.product.micro.migration.ReservationMigration;
+import br.com.product.micro.repository.IProcessedEventRepository;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import br.com.product.micro.scheduler.DeliveredSalesArchiver;
+import br.com.product.micro.service.ProductImportService;
+import br.com.product.micro.service.SaleReservationService;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * The service wiring with the MongoDB repositories swapped for the in-memory stores. Everything that talks to
+ * MongoDB directly (index verification, migrations, the catalog import, the delivered sales archive and the
+ * reservation lookup over it, the reactive read API) is left out.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        MongoAutoConfiguration.class,
+        MongoDataAutoConfiguration.class,
+        MongoRepositoriesAutoConfiguration.class,
+        MongoReactiveAutoConfiguration.class,
+        MongoReactiveDataAutoConfiguration.class,
+        MongoReactiveRepositoriesAutoConfiguration.class
+})
+@ComponentScan(
+        basePackageClasses = ProductMicroserviceApplication.class,
+        excludeFilters = {
+                @ComponentScan.Filter(
+                        type = FilterType.ASSIGNABLE_TYPE,
+                        classes = {
+                                ProductMicroserviceApplication.class,
+                                MongoIndexConfig.class,
+                                ReservationMigration.class,
+                                ProductStockMigration.class,
+                                ProductImportController.class,
+                                ProductImportService.class,
+                                DeliveredSalesArchiver.class,
+                                SaleReservationController.class,
+                                SaleReservationService.class
+                        }
+                ),
+                @ComponentScan.Filter(type = FilterType.REGEX, pattern = "br\\.com\\.product\\.micro\\.load\\..*")
+        }
+)
+public class LoadHarnessApplication {
+    @Bean
+    public InMemoryProductStore inMemoryProductStore() {
+        return new InMemoryProductStore();
+    }
+
+    @Bean
+    public InMemoryReservationStore inMemoryReservationStore() {
+        return new InMemoryReservationStore();
+    }
+
+    @Bean
+    public IProductRepository productRepository(InMemoryProductStore store) {
+        return InMemoryRepositories.products(store);
+    }
+
+    @Bean
+    public ISaleReservationRepository saleReservationRepository(InMemoryReservationStore store) {
+        return InMemoryRepositories.reservations(store);
+    }
+
+    @Bean
+    public InMemoryProcessedEventStore inMemoryProcessedEventStore() {
+        return new InMemoryProcessedEventStore();
+    }
+
+    @Bean
+    public IProcessedEventRepository processedEventRepository(InMemoryProcessedEventStore store) {
+        return InMemoryRepositories.processedEvents(store);
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.product.micro.load;
+
+import br.com.product.micro.domain.Status;
+import org.springframework.core.env.PropertyResolver;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Harness options, read from {@code --load.*} arguments.
+ */
+public record LoadSettings(
+        int rate,
+        Duration warmup,
+        Duration duration,
+        Duration drain,
+        int partitions,
+        int catalogSize,
+        int itemsPerSale,
+        Map<Status, Integer> mix
+) {
+    private static final String DEFAULT_MIX = "CREATED=40,PAID=25,DELIVERED=20,CANCELED=15";
+
+    public static LoadSettings from(PropertyResolver properties) {
+        return new LoadSettings(
+                properties.getProperty("load.rate", Integer.class, 2000),
+                properties.getProperty("load.warmup", Duration.class, Duration.ofSeconds(10)),
+                properties.getProperty("load.duration", Duration.class, Duration.ofSeconds(60)),
+                properties.getProperty("load.drain", Duration.class, Duration.ofSeconds(30)),
+                properties.getProperty("load.partitions", Integer.class, 3),
+                properties.getProperty("load.catalog-size", Integer.class, 10_000),
+                properties.getProperty("load.items-per-sale", Integer.class, 3),
+                parseMix(properties.getProperty("load.mix", DEFAULT_MIX))
+        );
+    }
+
+    private static Map<Status, Integer> parseMix(String mix) {
+        Map<Status, Integer> weights = new EnumMap<>(Status.class);
+
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            Status status = Status.valueOf(parts[0].trim());
+
+            if (status != Status.CREATED && status != Status.PAID && status != Status.DELIVERED && status != Status.CANCELED) {
+                throw new IllegalArgumentException("The load mix only accepts CREATED, PAID, DELIVERED and CANCELED");
+            }
+
+            weights.put(status, Integer.parseInt(parts[1].trim()));
+        }
+
+        if (weights.getOrDefault(Status.CREATED, 0) <= 0) {
+            throw new IllegalArgumentException("The load mix needs a CREATED weight, every other event follows a created sale");
+        }
+
+        return weights;
+    }
+}
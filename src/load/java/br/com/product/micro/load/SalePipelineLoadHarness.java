@@ -0,0 +1,212 @@
+package br.com.product.micro.load;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load harness: the service runs against an embedded Kafka broker and in-memory repositories while
+ * events are published at a fixed rate. Latency is measured from each event's scheduled send time, so a
+ * publisher that falls behind still counts the wait. Run with {@code mvn -Pload verify}, passing options
+ * through {@code -Dload.args}, e.g.
+ * {@code -Dload.args="--load.rate=5000 --product.kafka.sale.listener-mode=BATCH"}.
+ */
+public final class SalePipelineLoadHarness {
+    private static final String GROUP = "product-group";
+    private static final long FIRST_BAR_CODE = 7_890_000_000_000L;
+
+    private SalePipelineLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setConversionService(new ApplicationConversionService());
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadSettings settings = LoadSettings.from(environment);
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, settings.partitions(), "sale", "payment");
+        broker.afterPropertiesSet();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadHarnessApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.kafka.consumer.bootstrap-servers", broker.getBrokersAsString(),
+                        "spring.kafka.consumer.group-id", GROUP,
+                        "product.reactive.enabled", "false"
+                ))
+                .run(args)) {
+            run(context, broker.getBrokersAsString(), settings);
+        } finally {
+            broker.destroy();
+        }
+
+        System.exit(0);
+    }
+
+    static long barCode(int index) {
+        return FIRST_BAR_CODE + index;
+    }
+
+    private static void run(ConfigurableApplicationContext context, String bootstrapServers, LoadSettings settings) throws Exception {
+        InMemoryProductStore productStore = context.getBean(InMemoryProductStore.class);
+        InMemoryReservationStore reservationStore = context.getBean(InMemoryReservationStore.class);
+
+        for (int index = 0; index < settings.catalogSize(); index++) {
+            productStore.insert(Product.builder()
+                    .name("Product " + index)
+                    .barCode(barCode(index))
+                    .quantity(Long.MAX_VALUE / 4)
+                    .value(19.9)
+                    .build());
+        }
+
+        SaleTraffic traffic = new SaleTraffic(settings);
+        reservationStore.onChange(traffic::observe);
+
+        // Retry and dead-letter topics are auto-created with a single partition, only the main topics are spread.
+        context.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers().stream()
+                .filter(container -> container.isRunning())
+                .filter(container -> List.of("sale", "payment").containsAll(List.of(container.getContainerProperties().getTopics())))
+                .forEach(container -> ContainerTestUtils.waitForAssignment(container, settings.partitions()));
+
+        AtomicLong maxLag = new AtomicLong();
+        AtomicLong lagTotal = new AtomicLong();
+        AtomicLong lagSamples = new AtomicLong();
+        long measurementStart = System.nanoTime() + settings.warmup().toNanos();
+        long measurementEnd = measurementStart + settings.duration().toNanos();
+        traffic.closeWindow(measurementEnd);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+             KafkaProducer<String, Object> producer = producer(bootstrapServers)) {
+            sampler.scheduleAtFixedRate(() -> {
+                long now = System.nanoTime();
+
+                if (now < measurementStart || now > measurementEnd) {
+                    return;
+                }
+
+                long lag = consumerLag(admin);
+                maxLag.accumulateAndGet(lag, Math::max);
+                lagTotal.addAndGet(lag);
+                lagSamples.incrementAndGet();
+            }, 1, 1, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+
+            for (long event = 0; ; event++) {
+                long scheduledAt = start + event * interval;
+
+                if (scheduledAt >= measurementEnd) {
+                    break;
+                }
+
+                long wait = scheduledAt - System.nanoTime();
+
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                producer.send(traffic.next(scheduledAt, scheduledAt >= measurementStart));
+            }
+
+            producer.flush();
+            int backlogAtEnd = traffic.inFlight();
+            long drainDeadline = System.nanoTime() + settings.drain().toNanos();
+
+            while (traffic.inFlight() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(100);
+            }
+
+            report(settings, traffic, backlogAtEnd, maxLag.get(), lagSamples.get() == 0 ? 0 : lagTotal.get() / lagSamples.get());
+        } finally {
+            sampler.shutdownNow();
+        }
+    }
+
+    private static KafkaProducer<String, Object> producer(String bootstrapServers) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        properties.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+
+        return new KafkaProducer<>(properties);
+    }
+
+    private static long consumerLag(Admin admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata()
+                    .get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.keySet().forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest).all().get();
+
+            return committed.entrySet().stream()
+                    .mapToLong(entry -> ends.get(entry.getKey()).offset() - entry.getValue().offset())
+                    .sum();
+        } catch (Exception exception) {
+            return 0;
+        }
+    }
+
+    private static void report(LoadSettings settings, SaleTraffic traffic, int backlogAtEnd, long maxLag, long meanLag) {
+        double seconds = settings.duration().toMillis() / 1000.0;
+        long offered = traffic.sent().values().stream().mapToLong(AtomicLong::get).sum();
+
+        System.out.println();
+        System.out.printf("Sale pipeline load: %d events/s target for %s after %s warmup, mix %s%n",
+                settings.rate(), settings.duration(), settings.warmup(), settings.mix());
+        System.out.printf("Offered:   %.1f events/s%n", offered / seconds);
+        System.out.printf("Sustained: %.1f events/s%n", traffic.completedInWindow() / seconds);
+        System.out.printf("Consumer lag: max %d records, mean %d records; %d events unapplied at end of window, %d after drain%n",
+                maxLag, meanLag, backlogAtEnd, traffic.inFlight());
+        System.out.printf("%-10s %10s %10s %10s %10s %10s%n", "status", "events", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        for (Map.Entry<Status, Histogram> entry : traffic.latencies().entrySet()) {
+            Histogram histogram = entry.getValue();
+
+            System.out.printf("%-10s %10d %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(),
+                    histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package br.com.product.micro.load;
+
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.event.dto.ItemEventDto;
+import br.com.product.micro.event.dto.PaymentEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a valid event stream and times every event from its scheduled send time until the reservation shows
+ * its effect. A sale only receives its next event once the previous one has been applied, so payment and sale
+ * events never race each other across topics.
+ */
+class SaleTraffic {
+    private record Sent(Status status, long scheduledAt, boolean measured) {
+    }
+
+    private final LoadSettings settings;
+    private final Map<String, Sent> inFlight = new ConcurrentHashMap<>();
+    private final Queue<String> reserved = new ConcurrentLinkedQueue<>();
+    private final Queue<String> purchased = new ConcurrentLinkedQueue<>();
+    private final Map<Status, Histogram> latencies = new EnumMap<>(Status.class);
+    private final Map<Status, AtomicLong> sent = new EnumMap<>(Status.class);
+    private final AtomicLong completedInWindow = new AtomicLong();
+    private final AtomicLong nextSale = new AtomicLong();
+    private final int totalWeight;
+    private volatile long windowEnd = Long.MAX_VALUE;
+
+    SaleTraffic(LoadSettings settings) {
+        this.settings = settings;
+        this.totalWeight = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+
+        settings.mix().keySet().forEach(status -> {
+            latencies.put(status, new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3));
+            sent.put(status, new AtomicLong());
+        });
+    }
+
+    void closeWindow(long windowEnd) {
+        this.windowEnd = windowEnd;
+    }
+
+    ProducerRecord<String, Object> next(long scheduledAt, boolean measured) {
+        Status status = pickStatus();
+        String saleId = switch (status) {
+            case PAID -> reserved.poll();
+            case DELIVERED -> purchased.poll();
+            case CANCELED -> ThreadLocalRandom.current().nextBoolean()
+                    ? pollEither(reserved, purchased)
+                    : pollEither(purchased, reserved);
+            default -> null;
+        };
+
+        if (saleId == null) {
+            status = Status.CREATED;
+            saleId = "load-" + nextSale.incrementAndGet();
+        }
+
+        inFlight.put(saleId, new Sent(status, scheduledAt, measured));
+
+        if (measured) {
+            sent.get(status).incrementAndGet();
+        }
+
+        return switch (status) {
+            case CREATED -> new ProducerRecord<>("sale", saleId, new SaleEventDto(saleId, status, items()));
+            case PAID -> new ProducerRecord<>("payment", saleId, new PaymentEventDto(saleId, status));
+            default -> new ProducerRecord<>("sale", saleId, new SaleEventDto(saleId, status, List.of()));
+        };
+    }
+
+    void observe(String saleId, ReservationStatus status) {
+        long observedAt = System.nanoTime();
+        Sent event = inFlight.remove(saleId);
+
+        if (event == null) {
+            return;
+        }
+
+        if (event.measured()) {
+            latencies.get(event.status()).recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, observedAt - event.scheduledAt())));
+
+            if (observedAt <= windowEnd) {
+                completedInWindow.incrementAndGet();
+            }
+        }
+
+        if (status == ReservationStatus.RESERVED) {
+            reserved.add(saleId);
+        } else if (status == ReservationStatus.PURCHASED) {
+            purchased.add(saleId);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    long completedInWindow() {
+        return completedInWindow.get();
+    }
+
+    Map<Status, Histogram> latencies() {
+        return latencies;
+    }
+
+    Map<Status, AtomicLong> sent() {
+        return sent;
+    }
+
+    private Status pickStatus() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+
+        for (Map.Entry<Status, Integer> weight : settings.mix().entrySet()) {
+            roll -= weight.getValue();
+
+            if (roll < 0) {
+                return weight.getKey();
+            }
+        }
+
+        return Status.CREATED;
+    }
+
+    private String pollEither(Queue<String> first, Queue<String> second) {
+        String saleId = first.poll();
+        return saleId != null ? saleId : second.poll();
+    }
+
+    private List<ItemEventDto> items() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return random.ints(settings.itemsPerSale(), 0, settings.catalogSize())
+                .mapToObj(product -> new ItemEventDto(null, SalePipelineLoadHarness.barCode(product), 19.9, 1L))
+                .toList();
+    }
+}
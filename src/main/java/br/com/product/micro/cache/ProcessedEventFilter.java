@@ -0,0 +1,104 @@
+package br.com.product.micro.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bloom filter over processed event keys. A negative answer means the event was never recorded by this instance,
+ * so the processed_events lookup can be skipped; a positive answer still has to be confirmed there. Two generations
+ * are kept to hold the false-positive rate: once the current one has taken expectedInsertions keys it becomes the
+ * previous one and an empty one takes over, forgetting keys from two generations back.
+ */
+@Component
+public class ProcessedEventFilter {
+    private record Generations(Generation current, Generation previous) {
+    }
+
+    private final int bits;
+    private final int hashes;
+    private final long expectedInsertions;
+    private final AtomicReference<Generations> generations;
+
+    public ProcessedEventFilter(
+            @Value("${product.events.filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${product.events.filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        double optimalBits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 64L, Math.max(64, (long) Math.ceil(optimalBits)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+        this.generations = new AtomicReference<>(new Generations(new Generation(bits), new Generation(bits)));
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        Generations current = generations.get();
+
+        return current.current().contains(hash) || current.previous().contains(hash);
+    }
+
+    public void put(String key) {
+        Generations current = generations.get();
+
+        if (current.current().put(hash(key)) && current.current().insertions.incrementAndGet() >= expectedInsertions) {
+            generations.compareAndSet(current, new Generations(new Generation(bits), current.current()));
+        }
+    }
+
+    // 64-bit FNV-1a; the two halves seed the double hashing that picks the probed bits.
+    private long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int index = 0; index < key.length(); index++) {
+            hash ^= key.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicInteger insertions = new AtomicInteger();
+
+        private Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        private boolean contains(long hash) {
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+
+            for (int probe = 0; probe < hashes; probe++) {
+                int bit = Math.floorMod(first + probe * second, bits);
+
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean put(long hash) {
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+            boolean changed = false;
+
+            for (int probe = 0; probe < hashes; probe++) {
+                int bit = Math.floorMod(first + probe * second, bits);
+                long mask = 1L << bit;
+                long word = words.getAndUpdate(bit >>> 6, value -> value | mask);
+
+                changed |= (word & mask) == 0;
+            }
+
+            return changed;
+        }
+    }
+}
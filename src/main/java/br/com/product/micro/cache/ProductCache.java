@@ -0,0 +1,89 @@
+package br.com.product.micro.cache;
+
+import br.com.product.micro.domain.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+@Component
+public class ProductCache {
+    private final boolean enabled;
+    private final Cache<Long, Product> cache;
+
+    public ProductCache(
+            MeterRegistry meterRegistry,
+            @Value("${product.cache.enabled:true}") boolean enabled,
+            @Value("${product.cache.max-size:10000}") long maxSize,
+            @Value("${product.cache.max-staleness:5s}") Duration maxStaleness
+    ) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxStaleness)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    public Optional<Product> get(Long barCode, Function<Long, Optional<Product>> loader) {
+        if (!enabled) {
+            return loader.apply(barCode);
+        }
+
+        // Caffeine runs the loader inside a map bin lock, which would pin a virtual thread's carrier for the whole
+        // MongoDB round trip, so virtual threads load outside the cache and may race on the same cold key.
+        if (Thread.currentThread().isVirtual()) {
+            Product cached = cache.getIfPresent(barCode);
+
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+
+            Optional<Product> loaded = loader.apply(barCode);
+            loaded.ifPresent(product -> cache.put(barCode, product));
+
+            return loaded;
+        }
+
+        return Optional.ofNullable(cache.get(barCode, code -> loader.apply(code).orElse(null)));
+    }
+
+    public Optional<Product> getIfPresent(Long barCode) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(cache.getIfPresent(barCode));
+    }
+
+    public Map<Long, Product> getAll(Collection<Long> barCodes, Function<Set<Long>, Map<Long, Product>> loader) {
+        if (!enabled) {
+            return loader.apply(Set.copyOf(barCodes));
+        }
+
+        return cache.getAll(barCodes, codes -> loader.apply(Set.copyOf(codes)));
+    }
+
+    public void put(Product product) {
+        if (enabled) {
+            cache.put(product.getBarCode(), product);
+        }
+    }
+
+    public void evict(Long barCode) {
+        if (enabled) {
+            cache.invalidate(barCode);
+        }
+    }
+}
@@ -2,16 +2,40 @@ package br.com.product.micro.config;
 
 import br.com.product.micro.event.dto.PaymentEventDto;
 import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import br.com.product.micro.exception.ProductNotFoundException;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -23,6 +47,42 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String microserviceGroup;
 
+    @Value("${product.kafka.sale.batch-size:500}")
+    private Integer saleBatchSize;
+
+    @Value("${product.kafka.listener-concurrency:1}")
+    private Integer listenerConcurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${product.kafka.sync-commits:true}")
+    private boolean syncCommits;
+
+    @Value("${product.kafka.sale.retry.attempts:4}")
+    private Integer saleRetryAttempts;
+
+    @Value("${product.kafka.sale.retry.initial-delay:1s}")
+    private Duration saleRetryInitialDelay;
+
+    @Value("${product.kafka.sale.retry.multiplier:2.0}")
+    private Double saleRetryMultiplier;
+
+    @Value("${product.kafka.sale.retry.max-delay:30s}")
+    private Duration saleRetryMaxDelay;
+
+    @Value("${product.kafka.payment.retry.attempts:4}")
+    private Integer paymentRetryAttempts;
+
+    @Value("${product.kafka.payment.retry.initial-delay:1s}")
+    private Duration paymentRetryInitialDelay;
+
+    @Value("${product.kafka.payment.retry.multiplier:2.0}")
+    private Double paymentRetryMultiplier;
+
+    @Value("${product.kafka.payment.retry.max-delay:30s}")
+    private Duration paymentRetryMaxDelay;
+
     @Bean
     public ConsumerFactory<String, PaymentEventDto> paymentConsumerFactory() {
 
@@ -37,7 +97,7 @@ public class KafkaConsumerConfig {
                         ConsumerConfig.GROUP_ID_CONFIG, microserviceGroup
                 ),
                 new StringDeserializer(),
-                deserializer
+                new ErrorHandlingDeserializer<>(deserializer)
         );
     }
 
@@ -48,6 +108,7 @@ public class KafkaConsumerConfig {
                 new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(paymentConsumerFactory());
+        configureListenerContainer(factory);
         return factory;
     }
 
@@ -65,7 +126,7 @@ public class KafkaConsumerConfig {
                         ConsumerConfig.GROUP_ID_CONFIG, microserviceGroup
                 ),
                 new StringDeserializer(),
-                deserializer
+                new ErrorHandlingDeserializer<>(deserializer)
         );
     }
 
@@ -76,6 +137,147 @@ public class KafkaConsumerConfig {
                 new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(saleConsumerFactory());
+        configureListenerContainer(factory);
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<String, SaleEventDto> saleBatchConsumerFactory() {
+
+        JsonDeserializer<SaleEventDto> deserializer =
+                new JsonDeserializer<>(SaleEventDto.class);
+
+        deserializer.addTrustedPackages("*");
+
+        return new DefaultKafkaConsumerFactory<>(
+                Map.of(
+                        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaUrl,
+                        ConsumerConfig.GROUP_ID_CONFIG, microserviceGroup,
+                        ConsumerConfig.MAX_POLL_RECORDS_CONFIG, saleBatchSize
+                ),
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(deserializer)
+        );
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, SaleEventDto> saleBatchKafkaListenerFactory() {
+
+        ConcurrentKafkaListenerContainerFactory<String, SaleEventDto> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(saleBatchConsumerFactory());
+        configureListenerContainer(factory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(saleBatchErrorHandler());
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, PaymentEventDto> paymentParallelKafkaListenerFactory() {
+
+        ConcurrentKafkaListenerContainerFactory<String, PaymentEventDto> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(paymentConsumerFactory());
+        configureListenerContainer(factory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, SaleEventDto> saleParallelKafkaListenerFactory() {
+
+        ConcurrentKafkaListenerContainerFactory<String, SaleEventDto> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(saleConsumerFactory());
+        configureListenerContainer(factory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
         return factory;
     }
+
+    @Bean
+    public ProducerFactory<String, Object> retryProducerFactory() {
+
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new JsonSerializer<>().noTypeInfo());
+
+        return new DefaultKafkaProducerFactory<>(
+                Map.of(
+                        ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaUrl,
+                        ProducerConfig.ACKS_CONFIG, "all",
+                        ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true
+                ),
+                new StringSerializer(),
+                new DelegatingByTypeSerializer(serializers, true)
+        );
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> retryKafkaTemplate() {
+        return new KafkaTemplate<>(retryProducerFactory());
+    }
+
+    // Dead letters go to the same <topic>-dlt topics the retry topic configuration uses, on whatever partition
+    // Kafka picks, as those topics need not have as many partitions as the source.
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer() {
+        return new DeadLetterPublishingRecoverer(
+                retryKafkaTemplate(),
+                (record, exception) -> new TopicPartition(record.topic() + "-dlt", -1)
+        );
+    }
+
+    // A missing product or short stock will fail the same way on every attempt, so those sales go straight to sale-dlt.
+    @Bean
+    @ConditionalOnProperty(name = "product.kafka.sale.listener-mode", havingValue = "RECORD", matchIfMissing = true)
+    public RetryTopicConfiguration saleRetryTopicConfiguration() {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic("sale")
+                .maxAttempts(saleRetryAttempts)
+                .exponentialBackoff(saleRetryInitialDelay.toMillis(), saleRetryMultiplier, saleRetryMaxDelay.toMillis())
+                .notRetryOn(List.of(ProductNotFoundException.class, InsufficientProductsException.class))
+                .traversingCauses()
+                .listenerFactory(saleKafkaListenerFactory())
+                .create(retryKafkaTemplate());
+    }
+
+    // A payment can overtake its sale's CREATED event, which may itself be waiting in a retry topic, so every
+    // failure is retried before the record is dead-lettered.
+    @Bean
+    @ConditionalOnProperty(name = "product.kafka.payment.listener-mode", havingValue = "RECORD", matchIfMissing = true)
+    public RetryTopicConfiguration paymentRetryTopicConfiguration() {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic("payment")
+                .maxAttempts(paymentRetryAttempts)
+                .exponentialBackoff(paymentRetryInitialDelay.toMillis(), paymentRetryMultiplier, paymentRetryMaxDelay.toMillis())
+                .listenerFactory(paymentKafkaListenerFactory())
+                .create(retryKafkaTemplate());
+    }
+
+    // A batch listener points at the failing record with a BatchListenerFailedException: the records before it are
+    // committed, it is retried with the sale backoff and then dead-lettered, and the rest of the batch is redelivered.
+    private DefaultErrorHandler saleBatchErrorHandler() {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(saleRetryAttempts - 1);
+        backOff.setInitialInterval(saleRetryInitialDelay.toMillis());
+        backOff.setMultiplier(saleRetryMultiplier);
+        backOff.setMaxInterval(saleRetryMaxDelay.toMillis());
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(deadLetterPublishingRecoverer(), backOff);
+        errorHandler.addNotRetryableExceptions(ProductNotFoundException.class, InsufficientProductsException.class);
+        return errorHandler;
+    }
+
+    private void configureListenerContainer(ConcurrentKafkaListenerContainerFactory<String, ?> factory) {
+        factory.setConcurrency(listenerConcurrency);
+        factory.getContainerProperties().setSyncCommits(syncCommits);
+
+        if (virtualThreads) {
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-listener-"));
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package br.com.product.micro.config;
+
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.metrics.OperationTaggingInterceptor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    private final OperationTaggingInterceptor operationTaggingInterceptor;
+
+    public MetricsConfig(OperationTaggingInterceptor operationTaggingInterceptor) {
+        this.operationTaggingInterceptor = operationTaggingInterceptor;
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoOperationMetricsCustomizer(MongoOperationMetrics mongoOperationMetrics) {
+        return builder -> builder.addCommandListener(mongoOperationMetrics);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(operationTaggingInterceptor);
+    }
+}
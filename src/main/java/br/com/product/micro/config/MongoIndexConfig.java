@@ -0,0 +1,144 @@
+package br.com.product.micro.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Configuration
+public class MongoIndexConfig implements SmartInitializingSingleton {
+    public enum IndexVerificationMode {
+        FAIL,
+        WARN
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+    private final IndexVerificationMode verificationMode;
+
+    public MongoIndexConfig(
+            MongoTemplate mongoTemplate,
+            MongoMappingContext mappingContext,
+            @Value("${product.mongo.index-verification-mode:FAIL}") IndexVerificationMode verificationMode
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+        this.verificationMode = verificationMode;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        IndexResolver indexResolver = IndexResolver.create(mappingContext);
+        List<String> problems = new ArrayList<>();
+
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+
+            IndexOperations indexOperations = mongoTemplate.indexOps(entity.getType());
+            dropEmbeddedUniqueIndexes(indexOperations, entity.getCollection());
+
+            for (IndexDefinition index : indexResolver.resolveIndexFor(entity.getType())) {
+                if (isEmbedded(index)) {
+                    continue;
+                }
+
+                try {
+                    indexOperations.createIndex(index);
+                } catch (DataAccessException exception) {
+                    problems.add("Could not create index " + index.getIndexKeys().toJson() + " on "
+                            + entity.getCollection() + ": " + exception.getMessage());
+                    continue;
+                }
+
+                if (!hasIndex(indexOperations.getIndexInfo(), index)) {
+                    problems.add("Index " + index.getIndexKeys().toJson() + " " + index.getIndexOptions().toJson()
+                            + " is missing or has a different shape on " + entity.getCollection());
+                }
+            }
+        }
+
+        if (problems.isEmpty()) {
+            return;
+        }
+
+        if (verificationMode == IndexVerificationMode.FAIL) {
+            throw new IllegalStateException("MongoDB index verification failed: " + String.join("; ", problems));
+        }
+
+        problems.forEach(problem -> log.warn("MongoDB index verification: {}", problem));
+    }
+
+    // The resolver also walks into embedded documents, so a List<Product> field picked up a unique
+    // "products.barCode" index that rejects two documents holding the same product. Such indexes belong to the
+    // embedded type's own collection.
+    private boolean isEmbedded(IndexDefinition index) {
+        return index.getIndexKeys().keySet().stream().anyMatch(key -> key.contains("."));
+    }
+
+    private void dropEmbeddedUniqueIndexes(IndexOperations indexOperations, String collection) {
+        indexOperations.getIndexInfo().stream()
+                .filter(info -> info.isUnique() && info.getIndexFields().stream().anyMatch(field -> field.getKey().contains(".")))
+                .forEach(info -> {
+                    log.warn("Dropping unique index {} on an embedded field of {}", info.getName(), collection);
+                    indexOperations.dropIndex(info.getName());
+                });
+    }
+
+    private boolean hasIndex(List<IndexInfo> existingIndexes, IndexDefinition expected) {
+        Document expectedKeys = expected.getIndexKeys();
+        Document expectedOptions = expected.getIndexOptions();
+        boolean expectedUnique = expectedOptions.getBoolean("unique", false);
+        Number expectedExpireAfter = expectedOptions.get("expireAfterSeconds", Number.class);
+
+        return existingIndexes.stream().anyMatch(info -> {
+            List<IndexField> fields = info.getIndexFields();
+
+            if (fields.size() != expectedKeys.size() || info.isUnique() != expectedUnique) {
+                return false;
+            }
+
+            int position = 0;
+            for (Map.Entry<String, Object> key : expectedKeys.entrySet()) {
+                IndexField field = fields.get(position++);
+
+                if (!field.getKey().equals(key.getKey())) {
+                    return false;
+                }
+
+                if (key.getValue() instanceof Number direction) {
+                    Sort.Direction expectedDirection = direction.intValue() < 0 ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+                    if (field.getDirection() != expectedDirection) {
+                        return false;
+                    }
+                }
+            }
+
+            if (expectedExpireAfter != null) {
+                return info.getExpireAfter()
+                        .map(expireAfter -> expireAfter.getSeconds() == expectedExpireAfter.longValue())
+                        .orElse(false);
+            }
+
+            return true;
+        });
+    }
+}
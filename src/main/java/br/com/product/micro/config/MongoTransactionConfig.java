@@ -0,0 +1,19 @@
+package br.com.product.micro.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Multi-document transactions need MongoDB running as a replica set or sharded cluster, so they are opt-in.
+ */
+@Configuration
+@ConditionalOnProperty(name = "product.events.transactions.enabled", havingValue = "true")
+public class MongoTransactionConfig {
+    @Bean
+    public MongoTransactionManager mongoTransactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
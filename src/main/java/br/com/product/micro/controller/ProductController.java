@@ -2,13 +2,18 @@ package br.com.product.micro.controller;
 
 import br.com.product.micro.dto.request.CreateProductDto;
 import br.com.product.micro.dto.request.ProductBarCodeListDto;
+import br.com.product.micro.dto.request.PurchaseBasketDto;
 import br.com.product.micro.dto.request.PurchaseProductDto;
 import br.com.product.micro.dto.request.UpdateProductDto;
+import br.com.product.micro.dto.response.BasketPurchaseDto;
 import br.com.product.micro.dto.response.ProductDeletedSuccessfullyDto;
 import br.com.product.micro.dto.response.ProductsDataDto;
 import br.com.product.micro.dto.response.ProductInfoDto;
 import br.com.product.micro.dto.swagger.PageProductResponseDto;
+import br.com.product.micro.domain.BasketPurchase;
 import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductCursorPage;
+import br.com.product.micro.domain.ProductLookup;
 import br.com.product.micro.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -26,8 +31,6 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 @RestController
 @Tag(name = "Product", description = "Product operations")
@@ -321,6 +324,43 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.OK).body(products);
     }
 
+    @GetMapping("/api/product/list/cursor")
+    @Operation(
+            summary = "List products by cursor",
+            description = "Return a page of products after the given cursor, ordered by id. The total is only counted when requested",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "List returned successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ProductCursorPage.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid cursor or page size",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"Invalid page cursor!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<ProductCursorPage> listProductsByCursor(
+            @RequestParam(required = false, name = "cursor") String cursor,
+            @RequestParam(defaultValue = "10", required = false, name = "size") int size,
+            @RequestParam(defaultValue = "false", required = false, name = "total") boolean total
+    ) {
+        ProductCursorPage products = productService.listProductAfter(cursor, size, total);
+        return ResponseEntity.status(HttpStatus.OK).body(products);
+    }
+
     @PatchMapping("/api/product/purchase")
     @Operation(
             summary = "Purchase product",
@@ -364,10 +404,58 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.OK).body(new ProductInfoDto("Products purchased successfully!", updatedProduct));
     }
 
+    @PatchMapping("/api/product/purchase/basket")
+    @Operation(
+            summary = "Purchase basket",
+            description = "Purchase a quantity of several products at once, all or nothing, with a result per basket line",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Basket purchased successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"message\": \"Basket purchased successfully!\", \"lines\": [{ \"barCode\": 7891234567890, \"quantityPurchased\": 2, \"status\": \"PURCHASED\" }] }"
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid basket or too many lines!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"It is only possible to purchase up to 500 products at once!\" }"
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Basket not purchased, none of its lines were bought!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"message\": \"Basket not purchased, none of its lines were bought!\", \"lines\": [{ \"barCode\": 7891234567890, \"quantityPurchased\": 2, \"status\": \"ROLLED_BACK\" }, { \"barCode\": 7891234567891, \"quantityPurchased\": 9, \"status\": \"INSUFFICIENT\" }] }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<BasketPurchaseDto> purchaseBasket(@Valid @RequestBody PurchaseBasketDto basketDto) {
+        BasketPurchase basketPurchase = productService.removeProductQuantities(basketDto.items());
+
+        if (!basketPurchase.purchased()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new BasketPurchaseDto("Basket not purchased, none of its lines were bought!", basketPurchase.lines()));
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(new BasketPurchaseDto("Basket purchased successfully!", basketPurchase.lines()));
+    }
+
     @PostMapping("/api/product/data")
     @Operation(
             summary = "Products data",
-            description = "Returns information about more than one product",
+            description = "Returns information about more than one product, listing the bar codes that were not found",
             tags = {"Product"},
             responses = {
                     @ApiResponse(
@@ -380,6 +468,16 @@ public class ProductController {
                                     )
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Too many products requested at once",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"It is only possible to request up to 500 products at once!\" }"
+                                    )
+                            )
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "It was not possible to get data of products",
@@ -393,14 +491,126 @@ public class ProductController {
             }
     )
     public ResponseEntity<ProductsDataDto> productsData(@Valid @RequestBody ProductBarCodeListDto productBarCodeListDto) {
-        List<Long> list = productBarCodeListDto.products();
-        List<Product> products = new ArrayList<>();
+        ProductLookup lookup = productService.getProducts(productBarCodeListDto.products());
 
-        list.forEach((Long code) -> {
-            products.add(productService.getProduct(code));
-        });
+        return ResponseEntity.status(HttpStatus.OK).body(
+                new ProductsDataDto(
+                        "Products data returned successfully!",
+                        lookup.products(),
+                        lookup.missingBarCodes()
+                )
+        );
+    }
 
-        return ResponseEntity.status(HttpStatus.OK).body(new ProductsDataDto("Products data returned successfully!", products));
+    @PutMapping("/api/product/{barcode}/stock/stripes")
+    @Operation(
+            summary = "Stripe the stock of a product",
+            description = "Split the stock of a hot product across several counters so concurrent sales stop contending on one document, or change its stripe count",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Stock striping enabled successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductInfoDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid stripe count",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"The stripe count must be between 2 and 64!\" }"
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"NOT_FOUND\", \"message\": \"Product not found!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<ProductInfoDto> enableStockStriping(
+            @Parameter(description = "Product barcode", required = true) @PathVariable String barcode,
+            @Parameter(description = "Number of stock stripes") @RequestParam(defaultValue = "8", required = false, name = "stripes") int stripes
+    ) {
+        Long productBarcode = Long.parseLong(barcode);
+        Product product = productService.enableStockStriping(productBarcode, stripes);
+
+        return ResponseEntity.status(HttpStatus.OK).body(new ProductInfoDto("Stock striping enabled successfully!", product));
+    }
+
+    @DeleteMapping("/api/product/{barcode}/stock/stripes")
+    @Operation(
+            summary = "Stop striping the stock of a product",
+            description = "Fold the stock stripes of a product back into the product",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Stock striping disabled successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductInfoDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"NOT_FOUND\", \"message\": \"Product not found!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<ProductInfoDto> disableStockStriping(@Parameter(description = "Product barcode", required = true) @PathVariable String barcode) {
+        Long productBarcode = Long.parseLong(barcode);
+        Product product = productService.disableStockStriping(productBarcode);
+
+        return ResponseEntity.status(HttpStatus.OK).body(new ProductInfoDto("Stock striping disabled successfully!", product));
     }
-}
 
+    @PostMapping("/api/product/{barcode}/stock/stripes/rebalance")
+    @Operation(
+            summary = "Rebalance the stock stripes of a product",
+            description = "Spread the stock of a striped product evenly over its stripes again, including restocks that landed on the product",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Stock stripes rebalanced successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductInfoDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"NOT_FOUND\", \"message\": \"Product not found!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<ProductInfoDto> rebalanceStockStripes(@Parameter(description = "Product barcode", required = true) @PathVariable String barcode) {
+        Long productBarcode = Long.parseLong(barcode);
+        Product product = productService.rebalanceStockStripes(productBarcode);
+
+        return ResponseEntity.status(HttpStatus.OK).body(new ProductInfoDto("Stock stripes rebalanced successfully!", product));
+    }
+}
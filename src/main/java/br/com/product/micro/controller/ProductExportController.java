@@ -0,0 +1,97 @@
+package br.com.product.micro.controller;
+
+import br.com.product.micro.service.ProductExportService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@Tag(name = "Product export", description = "Full catalog export")
+public class ProductExportController {
+    private final ProductExportService productExportService;
+    private final ObjectWriter productWriter;
+
+    public ProductExportController(ProductExportService productExportService, ObjectMapper objectMapper) {
+        this.productExportService = productExportService;
+        this.productWriter = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writer();
+    }
+
+    @GetMapping(value = "/api/product/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Export products",
+            description = "Stream the whole catalog as NDJSON straight from a MongoDB cursor, gzip-compressed when the client accepts it. "
+                    + "Use the Export-Snapshot-Time response header as the next since value for incremental syncs",
+            tags = {"Product export"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Catalog streamed",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Unknown projection field",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"Unknown product fields color!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public void exportProducts(
+            @Parameter(description = "Product fields to include, all when empty") @RequestParam(defaultValue = "", required = false, name = "fields") List<String> fields,
+            @Parameter(description = "Only products updated at or after this time (ISO date-time)") @RequestParam(required = false, name = "since") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestHeader(defaultValue = "", required = false, name = HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            HttpServletResponse response
+    ) throws IOException {
+        List<String> projection = fields.stream().map(String::trim).filter(field -> !field.isEmpty()).toList();
+        productExportService.validateFields(projection);
+
+        boolean gzip = acceptEncoding.contains("gzip");
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader("Export-Snapshot-Time", LocalDateTime.now().toString());
+
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream output = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+
+        productExportService.exportProducts(projection, since, product -> {
+            try {
+                output.write(productWriter.writeValueAsBytes(product));
+                output.write('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+
+        output.close();
+    }
+}
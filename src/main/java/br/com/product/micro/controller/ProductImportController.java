@@ -0,0 +1,108 @@
+package br.com.product.micro.controller;
+
+import br.com.product.micro.domain.ImportFormat;
+import br.com.product.micro.domain.ImportRowError;
+import br.com.product.micro.domain.ProductImport;
+import br.com.product.micro.service.ProductImportListener;
+import br.com.product.micro.service.ProductImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+@RestController
+@Tag(name = "Product import", description = "Bulk catalog import")
+public class ProductImportController {
+    private static final String CSV = "text/csv";
+
+    private final ProductImportService productImportService;
+    private final ObjectMapper objectMapper;
+
+    public ProductImportController(ProductImportService productImportService, ObjectMapper objectMapper) {
+        this.productImportService = productImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(value = "/api/product/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, CSV}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Import products",
+            description = "Stream a catalog as NDJSON or CSV (with a header naming the create fields). The response streams one line per "
+                    + "rejected row ({line, barCode, message}) and the import progress after every chunk ({id, status, lastLine, ...}). "
+                    + "Send the same file with the same importId to resume an interrupted import",
+            tags = {"Product import"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Import results streamed",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ProductImport.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid import file",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"The CSV header is missing the columns brand!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public void importProducts(
+            @Parameter(description = "Id used to resume the import, generated when missing") @RequestParam(required = false, name = "importId") String importId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            HttpServletResponse response
+    ) throws IOException {
+        String id = importId == null || importId.isBlank() ? UUID.randomUUID().toString() : importId;
+        ImportFormat format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON) ? ImportFormat.NDJSON : ImportFormat.CSV;
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader("Import-Id", id);
+
+        productImportService.importProducts(id, format, body, new ProductImportListener() {
+            @Override
+            public void rowRejected(ImportRowError error) {
+                write(response, error, false);
+            }
+
+            @Override
+            public void checkpoint(ProductImport productImport) {
+                write(response, productImport, true);
+            }
+        });
+    }
+
+    private void write(HttpServletResponse response, Object line, boolean flush) {
+        try {
+            OutputStream output = response.getOutputStream();
+            output.write(objectMapper.writeValueAsBytes(line));
+            output.write('\n');
+
+            if (flush) {
+                output.flush();
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
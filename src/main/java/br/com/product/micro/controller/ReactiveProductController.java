@@ -0,0 +1,136 @@
+package br.com.product.micro.controller;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.dto.request.ProductBarCodeListDto;
+import br.com.product.micro.dto.response.ProductInfoDto;
+import br.com.product.micro.dto.response.ProductsDataDto;
+import br.com.product.micro.service.IReactiveProductService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/reactive/product")
+@ConditionalOnProperty(name = "product.reactive.enabled", havingValue = "true", matchIfMissing = true)
+@Tag(name = "Reactive product", description = "Non-blocking product reads")
+public class ReactiveProductController {
+    private final IReactiveProductService reactiveProductService;
+
+    public ReactiveProductController(IReactiveProductService reactiveProductService) {
+        this.reactiveProductService = reactiveProductService;
+    }
+
+    @GetMapping("/{barcode}/informations")
+    @Operation(
+            summary = "Get product informations",
+            description = "Return all informations of a product by barcode without holding a request thread while MongoDB answers",
+            tags = {"Reactive product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Product returned successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductInfoDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"NOT_FOUND\", \"message\": \"Product not found!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public Mono<ResponseEntity<ProductInfoDto>> getProductInformations(@Parameter(description = "Product barcode", required = true) @PathVariable String barcode) {
+        Long productBarcode = Long.parseLong(barcode);
+
+        return reactiveProductService.getProduct(productBarcode)
+                .map(product -> ResponseEntity.status(HttpStatus.OK).body(new ProductInfoDto("Product returned successfully!", product)));
+    }
+
+    @GetMapping(value = "/list", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Stream products",
+            description = "Stream a page of products as newline-delimited JSON, written as MongoDB returns them",
+            tags = {"Reactive product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Products streamed successfully!",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = Product.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid page size",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"The page size must be between 1 and 500!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public Flux<Product> listProducts(
+            @RequestParam(defaultValue = "0", required = false, name = "page") int page,
+            @RequestParam(defaultValue = "10", required = false, name = "size") int size
+    ) {
+        return reactiveProductService.listProduct(page, size);
+    }
+
+    @PostMapping("/data")
+    @Operation(
+            summary = "Products data",
+            description = "Returns information about more than one product, listing the bar codes that were not found",
+            tags = {"Reactive product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Products data returned successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductsDataDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Too many products requested at once",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"BAD_REQUEST\", \"message\": \"It is only possible to request up to 500 products at once!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public Mono<ResponseEntity<ProductsDataDto>> productsData(@Valid @RequestBody ProductBarCodeListDto productBarCodeListDto) {
+        return reactiveProductService.getProducts(productBarCodeListDto.products())
+                .map(lookup -> ResponseEntity.status(HttpStatus.OK).body(
+                        new ProductsDataDto(
+                                "Products data returned successfully!",
+                                lookup.products(),
+                                lookup.missingBarCodes()
+                        )
+                ));
+    }
+}
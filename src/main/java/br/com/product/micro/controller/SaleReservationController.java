@@ -0,0 +1,65 @@
+package br.com.product.micro.controller;
+
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.dto.response.SaleReservationInfoDto;
+import br.com.product.micro.service.SaleReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Tag(name = "Sale reservation", description = "Stock reserved for sales")
+public class SaleReservationController {
+    private final SaleReservationService saleReservationService;
+
+    public SaleReservationController(SaleReservationService saleReservationService) {
+        this.saleReservationService = saleReservationService;
+    }
+
+    @GetMapping("/api/product/sale/{saleId}/reservation")
+    @Operation(
+            summary = "Get sale reservation",
+            description = "Return the reservation of a sale with the catalog data of each item",
+            tags = {"Sale reservation"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Sale reservation returned successfully!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = SaleReservationInfoDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Sale reservation not found!",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            example = "{ \"status\": \"NOT_FOUND\", \"message\": \"Sale reservation not found!\" }"
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<SaleReservationInfoDto> getSaleReservation(@Parameter(description = "Sale id", required = true) @PathVariable String saleId) {
+        SaleReservation reservation = saleReservationService.getReservation(saleId);
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                new SaleReservationInfoDto(
+                        "Sale reservation returned successfully!",
+                        reservation.getSaleId(),
+                        reservation.getStatus(),
+                        saleReservationService.resolveItems(reservation)
+                )
+        );
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.product.micro.domain;
+
+import java.util.List;
+
+public record BasketPurchase(
+        boolean purchased,
+        List<PurchaseLine> lines
+) {
+}
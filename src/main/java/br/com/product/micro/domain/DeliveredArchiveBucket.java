@@ -0,0 +1,34 @@
+package br.com.product.micro.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Document(collection = "delivered_archive")
+public class DeliveredArchiveBucket {
+    @Id
+    private String id;
+    @Indexed
+    private LocalDate day;
+    @Indexed
+    private List<String> saleIds;
+    private int count;
+    private byte[] sales;
+    private LocalDateTime archivedAt;
+
+    public static String key(LocalDate day, String firstReservationId) {
+        return day + ":" + firstReservationId;
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.product.micro.domain;
+
+public record ImportRowError(
+        long line,
+        Long barCode,
+        String message
+) {
+}
@@ -0,0 +1,6 @@
+package br.com.product.micro.domain;
+
+public enum ImportStatus {
+    RUNNING,
+    COMPLETED
+}
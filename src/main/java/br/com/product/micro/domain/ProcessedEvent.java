@@ -0,0 +1,39 @@
+package br.com.product.micro.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Document(collection = "processed_events")
+public class ProcessedEvent {
+    @Id
+    private String id;
+    private String saleId;
+    private Status status;
+
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime processedAt;
+
+    public static String key(String saleId, Status status) {
+        return saleId + ":" + status.name();
+    }
+
+    public static ProcessedEvent of(String saleId, Status status) {
+        return ProcessedEvent.builder()
+                .id(key(saleId, status))
+                .saleId(saleId)
+                .status(status)
+                .processedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -4,13 +4,15 @@ import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "products")
@@ -18,10 +20,15 @@ public class Product {
     @Id
     private String id;
     private String name;
+    @Indexed(unique = true)
     private Long barCode;
     private String brand;
     private Double weight;
+    // Stock lives in ProductStock and is filled in on reads, so sales never rewrite the catalog document.
+    @Transient
     private Long quantity;
+    @Transient
+    private Integer stockStripes;
     private Double value;
     private String classification;
     private String description;
@@ -32,5 +39,6 @@ public class Product {
     private LocalDateTime createdAt;
 
     @LastModifiedDate
+    @Indexed
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,10 @@
+package br.com.product.micro.domain;
+
+import java.util.List;
+
+public record ProductCursorPage(
+        List<Product> content,
+        String nextCursor,
+        Long totalElements
+) {
+}
@@ -0,0 +1,27 @@
+package br.com.product.micro.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public record ProductLookup(
+        List<Product> products,
+        List<Long> missingBarCodes
+) {
+    public static ProductLookup of(List<Long> codes, Map<Long, Product> storedProducts) {
+        List<Product> products = new ArrayList<>();
+        List<Long> missingBarCodes = new ArrayList<>();
+
+        codes.forEach(code -> {
+            Product product = storedProducts.get(code);
+
+            if (product == null) {
+                missingBarCodes.add(code);
+            } else {
+                products.add(product);
+            }
+        });
+
+        return new ProductLookup(products, missingBarCodes);
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.product.micro.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of a product, kept apart from its catalog document so sales only ever write this small document. Keyed by
+ * bar code, as every stock change addresses the product that way. {@code stripes} is set for hot products whose
+ * stock is spread over {@link ProductStockStripe} documents.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Document(collection = "product_stock")
+public class ProductStock {
+    @Id
+    private Long barCode;
+    private Long quantity;
+    private Integer stripes;
+    @Indexed
+    private LocalDateTime updatedAt;
+
+    public Product applyTo(Product product, long stripedQuantity) {
+        return product.toBuilder()
+                .quantity(quantity + stripedQuantity)
+                .stockStripes(stripes)
+                .build();
+    }
+}
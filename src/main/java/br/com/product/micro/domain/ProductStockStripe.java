@@ -0,0 +1,30 @@
+package br.com.product.micro.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Document(collection = "product_stock_stripes")
+public class ProductStockStripe {
+    @Id
+    private String id;
+    @Indexed
+    private Long barCode;
+    private int stripe;
+    private Long quantity;
+    private LocalDateTime updatedAt;
+
+    public static String key(Long barCode, int stripe) {
+        return barCode + ":" + stripe;
+    }
+}
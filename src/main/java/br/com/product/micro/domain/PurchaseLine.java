@@ -0,0 +1,8 @@
+package br.com.product.micro.domain;
+
+public record PurchaseLine(
+        Long barCode,
+        Long quantityPurchased,
+        PurchaseLineStatus status
+) {
+}
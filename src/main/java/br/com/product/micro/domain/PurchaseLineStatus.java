@@ -0,0 +1,8 @@
+package br.com.product.micro.domain;
+
+public enum PurchaseLineStatus {
+    PURCHASED,
+    NOT_FOUND,
+    INSUFFICIENT,
+    ROLLED_BACK
+}
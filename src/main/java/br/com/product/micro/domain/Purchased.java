@@ -1,22 +0,0 @@
-package br.com.product.micro.domain;
-
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.Document;
-
-import java.util.List;
-
-@AllArgsConstructor
-@NoArgsConstructor
-@Builder
-@Data
-@Document(collection = "purchased")
-public class Purchased {
-    @Id
-    private String id;
-    private String saleId;
-    private List<Product> products;
-}
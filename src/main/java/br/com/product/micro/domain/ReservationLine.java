@@ -0,0 +1,7 @@
+package br.com.product.micro.domain;
+
+public record ReservationLine(
+        Item item,
+        Product product
+) {
+}
@@ -0,0 +1,9 @@
+package br.com.product.micro.domain;
+
+public enum ReservationStatus {
+    RESERVED,
+    PURCHASED,
+    DELIVERED,
+    CANCELED,
+    EXPIRED
+}
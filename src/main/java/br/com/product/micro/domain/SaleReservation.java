@@ -0,0 +1,46 @@
+package br.com.product.micro.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Document(collection = "reservations")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_saleId", def = "{'status': 1, 'saleId': 1}"),
+        @CompoundIndex(name = "status_expiresAt", def = "{'status': 1, 'expiresAt': 1}"),
+        @CompoundIndex(name = "status_updatedAt", def = "{'status': 1, 'updatedAt': 1}")
+})
+public class SaleReservation {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private String saleId;
+    private ReservationStatus status;
+    private List<Item> items;
+    private String transitionId;
+    // True on an EXPIRED or CANCELED claim once its stock is back, so a sweep taking over the claim only deletes it.
+    // A cancel claim starts at false; sales canceled before the flag existed have none and are never taken over.
+    private Boolean restocked;
+    private LocalDateTime expiresAt;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+}
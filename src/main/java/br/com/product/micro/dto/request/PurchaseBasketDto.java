@@ -0,0 +1,13 @@
+package br.com.product.micro.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record PurchaseBasketDto(
+        @NotEmpty(message = "The basket must not be empty!")
+        List<@Valid @NotNull(message = "The basket line is required!") PurchaseProductDto> items
+) {
+}
@@ -0,0 +1,11 @@
+package br.com.product.micro.dto.response;
+
+import br.com.product.micro.domain.PurchaseLine;
+
+import java.util.List;
+
+public record BasketPurchaseDto(
+        String message,
+        List<PurchaseLine> lines
+) {
+}
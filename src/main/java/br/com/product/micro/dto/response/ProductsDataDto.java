@@ -6,6 +6,7 @@ import java.util.List;
 
 public record ProductsDataDto(
         String message,
-        List<Product> products
+        List<Product> products,
+        List<Long> missingBarCodes
 ) {
 }
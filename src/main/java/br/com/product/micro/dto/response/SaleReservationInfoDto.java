@@ -0,0 +1,14 @@
+package br.com.product.micro.dto.response;
+
+import br.com.product.micro.domain.ReservationLine;
+import br.com.product.micro.domain.ReservationStatus;
+
+import java.util.List;
+
+public record SaleReservationInfoDto(
+        String message,
+        String saleId,
+        ReservationStatus status,
+        List<ReservationLine> items
+) {
+}
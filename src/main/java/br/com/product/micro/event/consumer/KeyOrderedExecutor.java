@@ -0,0 +1,106 @@
+package br.com.product.micro.event.consumer;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class KeyOrderedExecutor {
+    private static class KeyQueue {
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private int pending;
+    }
+
+    // A ReentrantLock rather than a monitor, so a listener waiting for capacity on a virtual thread does not pin its carrier.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<String, KeyQueue> queues = new HashMap<>();
+    private final ExecutorService workers;
+    private final int queueDepth;
+    private final int maxInFlight;
+    private int inFlight;
+
+    public KeyOrderedExecutor(
+            @Value("${product.kafka.parallel.concurrency:8}") int concurrency,
+            @Value("${product.kafka.parallel.queue-depth:16}") int queueDepth,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("event-worker-", 1).factory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "event-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+
+        this.workers = Executors.newFixedThreadPool(concurrency, threadFactory);
+        this.queueDepth = queueDepth;
+        this.maxInFlight = concurrency * queueDepth;
+    }
+
+    public CompletableFuture<Void> submit(String key, Runnable task) throws InterruptedException {
+        lock.lock();
+
+        try {
+            KeyQueue queue;
+
+            while (true) {
+                queue = queues.computeIfAbsent(key, ignored -> new KeyQueue());
+
+                if (queue.pending < queueDepth && inFlight < maxInFlight) {
+                    break;
+                }
+
+                released.await();
+            }
+
+            queue.pending++;
+            inFlight++;
+
+            CompletableFuture<Void> future = queue.tail
+                    .handle((result, exception) -> null)
+                    .thenRunAsync(task, workers);
+
+            KeyQueue submittedQueue = queue;
+            queue.tail = future;
+            future.whenComplete((result, exception) -> release(key, submittedQueue));
+
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(String key, KeyQueue queue) {
+        lock.lock();
+
+        try {
+            queue.pending--;
+            inFlight--;
+
+            if (queue.pending == 0) {
+                queues.remove(key, queue);
+            }
+
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,157 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.event.dto.PaymentEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import br.com.product.micro.exception.ProductNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+@Slf4j
+@Service
+public class ParallelEventConsumer {
+    // A missing product or short stock fails the same way on every attempt, as in the record mode retry topics.
+    private static final Predicate<RuntimeException> SALE_RETRYABLE = exception ->
+            !(exception instanceof ProductNotFoundException) && !(exception instanceof InsufficientProductsException);
+
+    private final ProductConsumer productConsumer;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final BackOff saleBackOff;
+    private final BackOff paymentBackOff;
+
+    public ParallelEventConsumer(
+            ProductConsumer productConsumer,
+            KeyOrderedExecutor keyOrderedExecutor,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            @Value("${product.kafka.sale.retry.attempts:4}") int saleRetryAttempts,
+            @Value("${product.kafka.sale.retry.initial-delay:1s}") Duration saleRetryInitialDelay,
+            @Value("${product.kafka.sale.retry.multiplier:2.0}") double saleRetryMultiplier,
+            @Value("${product.kafka.sale.retry.max-delay:30s}") Duration saleRetryMaxDelay,
+            @Value("${product.kafka.payment.retry.attempts:4}") int paymentRetryAttempts,
+            @Value("${product.kafka.payment.retry.initial-delay:1s}") Duration paymentRetryInitialDelay,
+            @Value("${product.kafka.payment.retry.multiplier:2.0}") double paymentRetryMultiplier,
+            @Value("${product.kafka.payment.retry.max-delay:30s}") Duration paymentRetryMaxDelay
+    ) {
+        this.productConsumer = productConsumer;
+        this.keyOrderedExecutor = keyOrderedExecutor;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.saleBackOff = backOff(saleRetryAttempts, saleRetryInitialDelay, saleRetryMultiplier, saleRetryMaxDelay);
+        this.paymentBackOff = backOff(paymentRetryAttempts, paymentRetryInitialDelay, paymentRetryMultiplier, paymentRetryMaxDelay);
+    }
+
+    @KafkaListener(
+            topics = "sale",
+            groupId = "product-group",
+            containerFactory = "saleParallelKafkaListenerFactory",
+            autoStartup = "#{'${product.kafka.sale.listener-mode:RECORD}' == 'PARALLEL'}"
+    )
+    public void saleParallelListener(ConsumerRecord<String, SaleEventDto> record, Acknowledgment acknowledgment) throws InterruptedException {
+        SaleEventDto event = record.value();
+
+        dispatch(event.id(), record, acknowledgment, saleBackOff, SALE_RETRYABLE, () -> productConsumer.saleListener(event));
+    }
+
+    @KafkaListener(
+            topics = "payment",
+            groupId = "product-group",
+            containerFactory = "paymentParallelKafkaListenerFactory",
+            autoStartup = "#{'${product.kafka.payment.listener-mode:RECORD}' == 'PARALLEL'}"
+    )
+    public void paymentParallelListener(ConsumerRecord<String, PaymentEventDto> record, Acknowledgment acknowledgment) throws InterruptedException {
+        PaymentEventDto event = record.value();
+
+        // A payment can overtake its sale's CREATED event, so every payment failure is retried.
+        dispatch(event.saleId(), record, acknowledgment, paymentBackOff, exception -> true, () -> productConsumer.paymentListener(event));
+    }
+
+    private void dispatch(
+            String saleId,
+            ConsumerRecord<String, ?> record,
+            Acknowledgment acknowledgment,
+            BackOff backOff,
+            Predicate<RuntimeException> retryable,
+            Runnable handler
+    ) throws InterruptedException {
+        keyOrderedExecutor.submit(saleId, () -> handle(saleId, record, acknowledgment, backOff, retryable, handler));
+    }
+
+    // Retries run inside the task, so the later events of the same sale keep waiting behind the failing one.
+    private void handle(
+            String saleId,
+            ConsumerRecord<String, ?> record,
+            Acknowledgment acknowledgment,
+            BackOff backOff,
+            Predicate<RuntimeException> retryable,
+            Runnable handler
+    ) {
+        BackOffExecution execution = backOff.start();
+
+        while (true) {
+            try {
+                handler.run();
+                acknowledgment.acknowledge();
+                return;
+            } catch (RuntimeException exception) {
+                long wait = retryable.test(exception) ? execution.nextBackOff() : BackOffExecution.STOP;
+
+                if (wait == BackOffExecution.STOP) {
+                    deadLetter(saleId, record, acknowledgment, exception);
+                    return;
+                }
+
+                log.warn("Event for sale {} at {}-{}@{} failed, retrying in {} ms: {}",
+                        saleId, record.topic(), record.partition(), record.offset(), wait, exception.getMessage());
+
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException interrupted) {
+                    // Left unacknowledged, so it is redelivered once the partition is assigned again.
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deadLetter(String saleId, ConsumerRecord<String, ?> record, Acknowledgment acknowledgment, RuntimeException exception) {
+        log.error(
+                "Event for sale {} at {}-{}@{} failed: {}",
+                saleId,
+                record.topic(),
+                record.partition(),
+                record.offset(),
+                exception.getMessage()
+        );
+
+        try {
+            deadLetterPublishingRecoverer.accept(record, exception);
+        } catch (RuntimeException publishFailure) {
+            // Without an acknowledgment the offset is not committed past this record, so it is redelivered after a
+            // restart or rebalance instead of being lost.
+            log.error("Event for sale {} could not be dead-lettered and stays unacknowledged: {}", saleId, publishFailure.getMessage());
+            return;
+        }
+
+        acknowledgment.acknowledge();
+    }
+
+    private BackOff backOff(int attempts, Duration initialDelay, double multiplier, Duration maxDelay) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(attempts - 1);
+        backOff.setInitialInterval(initialDelay.toMillis());
+        backOff.setMultiplier(multiplier);
+        backOff.setMaxInterval(maxDelay.toMillis());
+        return backOff;
+    }
+}
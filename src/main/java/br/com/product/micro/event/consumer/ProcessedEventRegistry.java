@@ -0,0 +1,196 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.cache.ProcessedEventFilter;
+import br.com.product.micro.domain.ProcessedEvent;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.repository.IProcessedEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies each sale and payment event at most once per saleId and status, so listeners can be replayed after a
+ * rebalance or a lazy offset commit. The marker in processed_events is the source of truth and the Bloom filter
+ * only spares the lookup for events this instance has never seen.
+ * <p>
+ * With transactions enabled the marker and the stock change commit together. Without them the marker is written
+ * just before the change and removed again if the change fails, so a crash between the two drops that event.
+ */
+@Slf4j
+@Component
+public class ProcessedEventRegistry {
+    private final IProcessedEventRepository processedEventRepository;
+    private final ProcessedEventFilter processedEventFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public ProcessedEventRegistry(
+            IProcessedEventRepository processedEventRepository,
+            ProcessedEventFilter processedEventFilter,
+            Optional<MongoTransactionManager> transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${product.events.deduplication.enabled:true}") boolean enabled
+    ) {
+        this.processedEventRepository = processedEventRepository;
+        this.processedEventFilter = processedEventFilter;
+        this.transactionTemplate = transactionManager.map(TransactionTemplate::new).orElse(null);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    public boolean runOnce(String saleId, Status status, Runnable change) {
+        if (!enabled) {
+            change.run();
+            return true;
+        }
+
+        String key = ProcessedEvent.key(saleId, status);
+
+        if (processedEventFilter.mightContain(key) && processedEventRepository.existsById(key)) {
+            return skip(saleId, status);
+        }
+
+        ProcessedEvent marker = ProcessedEvent.of(saleId, status);
+
+        if (transactionTemplate != null) {
+            // A duplicate key can come from the marker or from a write the first delivery already made;
+            // either way the transaction rolled back and the event was applied before.
+            try {
+                transactionTemplate.executeWithoutResult(transaction -> {
+                    processedEventRepository.insert(marker);
+                    change.run();
+                });
+            } catch (DuplicateKeyException exception) {
+                return skip(saleId, status);
+            }
+        } else {
+            try {
+                processedEventRepository.insert(marker);
+            } catch (DuplicateKeyException exception) {
+                return skip(saleId, status);
+            }
+
+            try {
+                change.run();
+            } catch (RuntimeException exception) {
+                processedEventRepository.deleteById(key);
+                throw exception;
+            }
+        }
+
+        processedEventFilter.put(key);
+        return true;
+    }
+
+    public <T> void runOnceAll(List<T> events, Function<T, String> saleIdOf, Function<T, Status> statusOf, Consumer<List<T>> change) {
+        if (!enabled) {
+            change.accept(events);
+            return;
+        }
+
+        Map<String, T> pending = new LinkedHashMap<>();
+
+        events.forEach(event -> {
+            if (pending.putIfAbsent(ProcessedEvent.key(saleIdOf.apply(event), statusOf.apply(event)), event) != null) {
+                skip(saleIdOf.apply(event), statusOf.apply(event));
+            }
+        });
+
+        dropProcessed(pending, pending.keySet().stream().filter(processedEventFilter::mightContain).toList(), saleIdOf, statusOf);
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (transactionTemplate != null) {
+            try {
+                applyInTransaction(pending, saleIdOf, statusOf, change);
+            } catch (DuplicateKeyException exception) {
+                // The filter only knows keys recorded since startup, so check every key before the one retry.
+                dropProcessed(pending, List.copyOf(pending.keySet()), saleIdOf, statusOf);
+                applyInTransaction(pending, saleIdOf, statusOf, change);
+            }
+        } else {
+            Set<String> duplicates = processedEventRepository.insertNew(markers(pending, saleIdOf, statusOf));
+            duplicates.forEach(key -> {
+                T event = pending.remove(key);
+                skip(saleIdOf.apply(event), statusOf.apply(event));
+            });
+
+            try {
+                change.accept(List.copyOf(pending.values()));
+            } catch (RuntimeException exception) {
+                processedEventRepository.deleteAllById(pending.keySet());
+                throw exception;
+            }
+        }
+
+        pending.keySet().forEach(processedEventFilter::put);
+    }
+
+    // Lets an event that was recorded but then dead-lettered be applied when it is replayed from the DLT.
+    public void forget(String saleId, Status status) {
+        if (enabled) {
+            processedEventRepository.deleteById(ProcessedEvent.key(saleId, status));
+        }
+    }
+
+    private <T> void applyInTransaction(Map<String, T> pending, Function<T, String> saleIdOf, Function<T, Status> statusOf, Consumer<List<T>> change) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(transaction -> {
+            processedEventRepository.insert(markers(pending, saleIdOf, statusOf));
+            change.accept(List.copyOf(pending.values()));
+        });
+    }
+
+    private <T> void dropProcessed(Map<String, T> pending, Collection<String> keys, Function<T, String> saleIdOf, Function<T, Status> statusOf) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        processedEventRepository.findAllById(keys).forEach(processed -> {
+            T event = pending.remove(processed.getId());
+
+            if (event != null) {
+                skip(saleIdOf.apply(event), statusOf.apply(event));
+            }
+        });
+    }
+
+    private <T> List<ProcessedEvent> markers(Map<String, T> pending, Function<T, String> saleIdOf, Function<T, Status> statusOf) {
+        return pending.values().stream()
+                .map(event -> ProcessedEvent.of(saleIdOf.apply(event), statusOf.apply(event)))
+                .toList();
+    }
+
+    private boolean skip(String saleId, Status status) {
+        log.debug("Skipping {} event for sale {}, already processed", status, saleId);
+        processedEventFilter.put(ProcessedEvent.key(saleId, status));
+
+        Counter.builder("kafka.events.duplicate")
+                .description("Sale and payment events skipped because they were already applied")
+                .tag("status", status.name())
+                .register(meterRegistry)
+                .increment();
+
+        return false;
+    }
+}
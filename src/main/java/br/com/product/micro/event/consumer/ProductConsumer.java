@@ -1,165 +1,133 @@
 package br.com.product.micro.event.consumer;
 
+import br.com.product.micro.cache.ProductCache;
 import br.com.product.micro.domain.*;
 import br.com.product.micro.event.dto.ItemEventDto;
 import br.com.product.micro.event.dto.PaymentEventDto;
 import br.com.product.micro.event.dto.SaleEventDto;
 import br.com.product.micro.exception.*;
-import br.com.product.micro.repository.IDeliveredRepository;
+import br.com.product.micro.metrics.MongoOperationMetrics;
 import br.com.product.micro.repository.IProductRepository;
-import br.com.product.micro.repository.IPurchasedRepository;
-import br.com.product.micro.repository.IReservedRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
 @Service
 public class ProductConsumer {
     private final IProductRepository iProductRepository;
-    private final IReservedRepository iReservedRepository;
-    private final IPurchasedRepository iPurchasedRepository;
-    private final IDeliveredRepository iDeliveredRepository;
+    private final ISaleReservationRepository iSaleReservationRepository;
+    private final ProductCache productCache;
+    private final MongoOperationMetrics mongoOperationMetrics;
+    private final ProcessedEventRegistry processedEventRegistry;
+    private final Duration reservationTtl;
 
     public ProductConsumer(
             IProductRepository iProductRepository,
-            IReservedRepository iReservedRepository, IPurchasedRepository iPurchasedRepository, IDeliveredRepository iDeliveredRepository
+            ISaleReservationRepository iSaleReservationRepository,
+            ProductCache productCache,
+            MongoOperationMetrics mongoOperationMetrics,
+            ProcessedEventRegistry processedEventRegistry,
+            @Value("${product.reservations.ttl:30m}") Duration reservationTtl
     ) {
         this.iProductRepository = iProductRepository;
-        this.iReservedRepository = iReservedRepository;
-        this.iPurchasedRepository = iPurchasedRepository;
-        this.iDeliveredRepository = iDeliveredRepository;
+        this.iSaleReservationRepository = iSaleReservationRepository;
+        this.productCache = productCache;
+        this.mongoOperationMetrics = mongoOperationMetrics;
+        this.processedEventRegistry = processedEventRegistry;
+        this.reservationTtl = reservationTtl;
     }
 
     private void saleCreated(SaleEventDto event) {
         String saleId = event.id();
         List<ItemEventDto> items = event.items();
-        List<Product> productList = new ArrayList<>();
-
-        items.forEach(product -> {
-            Long barCode = product.barCode();
-            Long subtraendo = product.quantity();
-
-            Optional<Product> storageProduct = iProductRepository.findByBarCode(barCode);
+        List<Item> reservedItems = new ArrayList<>();
+        Map<Long, Long> taken = new HashMap<>();
+
+        try {
+            items.forEach(product -> {
+                Long barCode = product.barCode();
+                Long subtraendo = product.quantity();
+
+                Product productUpdated = updateQuantity(barCode, subtraendo);
+                taken.merge(barCode, subtraendo, Long::sum);
+
+                reservedItems.add(Item.builder()
+                        .id(productUpdated.getId())
+                        .barCode(barCode)
+                        .value(productUpdated.getValue())
+                        .quantity(subtraendo)
+                        .build());
+            });
 
-            if (!storageProduct.isPresent()) {
-                throw new ProductNotFoundException();
+            SaleReservation reservation = SaleReservation.builder()
+                    .saleId(saleId)
+                    .status(ReservationStatus.RESERVED)
+                    .items(reservedItems)
+                    .expiresAt(LocalDateTime.now().plus(reservationTtl))
+                    .build();
+            iSaleReservationRepository.insert(reservation);
+        } catch (RuntimeException exception) {
+            // Without a transaction the lines taken before the failing one stay decremented, so they are returned
+            // like the basket purchase does, and a retry or a DLT replay starts from the original stock. Inside one
+            // the rollback returns them, and a write to an aborted transaction would only hide the original error.
+            if (!taken.isEmpty() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+                iProductRepository.adjustQuantities(taken);
+                taken.keySet().forEach(productCache::evict);
             }
 
-            Product productUpdated = updateQuantity(storageProduct.get(), subtraendo);
+            throw exception;
+        }
+    }
 
-            storageProduct.get().setQuantity(subtraendo);
-            productList.add(storageProduct.get());
-        });
+    private void salePaid(PaymentEventDto paymentEventDto) {
+        String saleId = paymentEventDto.saleId();
 
-        Reserved reserved = Reserved.builder()
-                .saleId(saleId)
-                .products(productList)
-                .build();
-        iReservedRepository.save(reserved);
+        if (!iSaleReservationRepository.transition(saleId, ReservationStatus.RESERVED, ReservationStatus.PURCHASED)) {
+            throw new ReservedProductsNotFoundException();
+        }
     }
 
     private void saleCompleted(SaleEventDto eventDto) {
         String saleId = eventDto.id();
-        Optional<Purchased> purchasedProducts = iPurchasedRepository.findBySaleId(saleId);
 
-        if (!purchasedProducts.isPresent()) {
+        if (!iSaleReservationRepository.transition(saleId, ReservationStatus.PURCHASED, ReservationStatus.DELIVERED)) {
             throw new PurchasedProductsNotFoundException();
         }
-
-        Purchased purchased = purchasedProducts.get();
-        iPurchasedRepository.deleteById(purchased.getId());
-
-        Delivered delivered = Delivered.builder()
-                .saleId(purchased.getSaleId())
-                .products(purchased.getProducts())
-                .build();
-
-        Delivered newDeliveredSale = iDeliveredRepository.save(delivered);
     }
 
     private void saleCanceled(SaleEventDto eventDto) {
         String saleId = eventDto.id();
-        Optional<Reserved> reserved = iReservedRepository.findBySaleId(saleId);
-
-        if (reserved.isPresent()) {
-            List<Product> products = reserved.get().getProducts();
-
-            products.forEach(item -> {
-                Optional<Product> storedProduct = iProductRepository.findById(item.getId());
-
-                if (!storedProduct.isPresent()) {
-                    throw new ProductNotFoundException();
-                }
-
-                Long newProductQuantity = storedProduct.get().getQuantity() + item.getQuantity();
-                Product product = Product.builder()
-                        .id(item.getId())
-                        .name(item.getName())
-                        .barCode(item.getBarCode())
-                        .brand(item.getBrand())
-                        .weight(item.getWeight())
-                        .quantity(newProductQuantity)
-                        .value(item.getValue())
-                        .classification(item.getClassification())
-                        .description(item.getDescription())
-                        .manufacturingDate(item.getManufacturingDate())
-                        .expirationDate(item.getExpirationDate())
-                        .createdAt(item.getCreatedAt())
-                        .updatedAt(LocalDateTime.now())
-                        .build();
-
-                Product updatedStock = iProductRepository.save(product);
-            });
-
-            iReservedRepository.deleteById(reserved.get().getId());
-            Optional<Reserved> deleted = iReservedRepository.findBySaleId(saleId);
-
-            if (deleted.isPresent()) {
-                throw new ErrorDeletingReservedProductsException();
-            }
-        } else {
-            Optional<Purchased> purchased = iPurchasedRepository.findBySaleId(saleId);
-
-            if (purchased.isPresent()) {
-                List<Product> products = purchased.get().getProducts();
-
-                products.forEach(item -> {
-                    Optional<Product> storedProduct = iProductRepository.findById(item.getId());
-
-                    if (!storedProduct.isPresent()) {
-                        throw new ProductNotFoundException();
-                    }
-
-                    Long newProductQuantity = storedProduct.get().getQuantity() + item.getQuantity();
-                    Product product = Product.builder()
-                            .id(item.getId())
-                            .name(item.getName())
-                            .barCode(item.getBarCode())
-                            .brand(item.getBrand())
-                            .weight(item.getWeight())
-                            .quantity(newProductQuantity)
-                            .value(item.getValue())
-                            .classification(item.getClassification())
-                            .description(item.getDescription())
-                            .manufacturingDate(item.getManufacturingDate())
-                            .expirationDate(item.getExpirationDate())
-                            .createdAt(item.getCreatedAt())
-                            .updatedAt(LocalDateTime.now())
-                            .build();
-
-                    Product updatedStock = iProductRepository.save(product);
-                });
-
-                iPurchasedRepository.deleteById(purchased.get().getId());
-                Optional<Purchased> deleted = iPurchasedRepository.findBySaleId(saleId);
-
-                if (deleted.isPresent()) {
-                    throw new ErrorDeletingPurchasedProductsException();
-                }
+        Optional<SaleReservation> reservation = iSaleReservationRepository.claim(
+                saleId,
+                List.of(ReservationStatus.RESERVED, ReservationStatus.PURCHASED),
+                ReservationStatus.CANCELED
+        );
+
+        if (reservation.isPresent()) {
+            Map<Long, Long> restocks = new HashMap<>();
+            reservation.get().getItems().forEach(item -> restocks.merge(item.getBarCode(), item.getQuantity(), Long::sum));
+
+            // A claim that is never flagged, because the restock failed, is taken over by the expiry sweep once stale.
+            List<String> ids = List.of(reservation.get().getId());
+            iProductRepository.adjustQuantities(restocks);
+            iSaleReservationRepository.markRestocked(ids, ReservationStatus.CANCELED);
+            restocks.keySet().forEach(productCache::evict);
+
+            // Nothing reads a canceled reservation once its stock is back, so it is removed rather than kept forever.
+            if (iSaleReservationRepository.deleteClaimed(ids, ReservationStatus.CANCELED) == 0) {
+                log.warn("Canceled reservation of sale {} was already removed", saleId);
             }
         }
     }
@@ -167,68 +135,55 @@ public class ProductConsumer {
     @KafkaListener(
             topics = "sale",
             groupId = "product-group",
-            containerFactory = "saleKafkaListenerFactory"
+            containerFactory = "saleKafkaListenerFactory",
+            autoStartup = "#{'${product.kafka.sale.listener-mode:RECORD}' == 'RECORD'}"
     )
     public void saleListener(SaleEventDto event) {
         Status status = event.status();
 
-        if (status.equals(Status.CREATED)) {
-            saleCreated(event);
-        }
+        try (MongoOperationMetrics.Scope scope = mongoOperationMetrics.open("kafka sale " + status)) {
+            if (status.equals(Status.CREATED)) {
+                processedEventRegistry.runOnce(event.id(), status, () -> saleCreated(event));
+            }
 
-        if (status.equals(Status.DELIVERED)) {
-            saleCompleted(event);
-        }
+            if (status.equals(Status.DELIVERED)) {
+                processedEventRegistry.runOnce(event.id(), status, () -> saleCompleted(event));
+            }
 
-        if (status.equals(Status.CANCELED)) {
-            saleCanceled(event);
+            if (status.equals(Status.CANCELED)) {
+                processedEventRegistry.runOnce(event.id(), status, () -> saleCanceled(event));
+            }
         }
     }
 
     @KafkaListener(
             topics = "payment",
             groupId = "product-group",
-            containerFactory = "paymentKafkaListenerFactory"
+            containerFactory = "paymentKafkaListenerFactory",
+            autoStartup = "#{'${product.kafka.payment.listener-mode:RECORD}' == 'RECORD'}"
     )
     public void paymentListener(PaymentEventDto paymentEventDto) {
         Status status = paymentEventDto.status();
 
-        if (status.equals(Status.PAID)) {
-            String saleId = paymentEventDto.saleId();
-
-            Optional<Reserved> reservedProducts = iReservedRepository.findBySaleId(saleId);
-
-            if (!reservedProducts.isPresent()) {
-                throw new ReservedProductsNotFoundException();
-            }
-
-            Purchased purchasedProduct = Purchased.builder()
-                    .saleId(saleId)
-                    .products(reservedProducts.get().getProducts())
-                    .build();
-
-            Purchased newPurchasedProduct = iPurchasedRepository.save(purchasedProduct);
-
-            if (newPurchasedProduct.getId() != null) {
-                iReservedRepository.delete(reservedProducts.get());
+        try (MongoOperationMetrics.Scope scope = mongoOperationMetrics.open("kafka payment " + status)) {
+            if (status.equals(Status.PAID)) {
+                processedEventRegistry.runOnce(paymentEventDto.saleId(), status, () -> salePaid(paymentEventDto));
             }
         }
     }
 
-    private Product updateQuantity(Product product, Long subtraendo) {
-        Long newProductQuantity = product.getQuantity() - subtraendo;
-
-        if (newProductQuantity < 0) {
-            throw new InsufficientProductsException();
-        }
+    private Product updateQuantity(Long barCode, Long subtraendo) {
+        Optional<Product> updated = iProductRepository.decrementQuantity(barCode, subtraendo);
+        productCache.evict(barCode);
 
-        product.setQuantity(newProductQuantity);
-        Product updated = iProductRepository.save(product);
+        if (!updated.isPresent()) {
+            if (!iProductRepository.existsByBarCode(barCode)) {
+                throw new ProductNotFoundException();
+            }
 
-        if (updated.getId() == null) {
-            throw new ErrorUpdatingProductException();
+            throw new InsufficientProductsException();
         }
 
-        return updated;
+        return updated.get();
     }
 }
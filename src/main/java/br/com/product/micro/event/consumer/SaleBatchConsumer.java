@@ -0,0 +1,355 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.*;
+import br.com.product.micro.event.dto.ItemEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import br.com.product.micro.exception.ProductNotFoundException;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Only registered in BATCH mode, so the record-mode retry topic configuration never wraps a batch listener.
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "product.kafka.sale.listener-mode", havingValue = "BATCH")
+public class SaleBatchConsumer {
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(SaleBatchConsumer.class);
+
+    private final IProductRepository iProductRepository;
+    private final ISaleReservationRepository iSaleReservationRepository;
+    private final ProductConsumer productConsumer;
+    private final ProductCache productCache;
+    private final MongoOperationMetrics mongoOperationMetrics;
+    private final ProcessedEventRegistry processedEventRegistry;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final Duration reservationTtl;
+
+    public SaleBatchConsumer(
+            IProductRepository iProductRepository,
+            ISaleReservationRepository iSaleReservationRepository,
+            ProductConsumer productConsumer,
+            ProductCache productCache,
+            MongoOperationMetrics mongoOperationMetrics,
+            ProcessedEventRegistry processedEventRegistry,
+            DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+            @Value("${product.reservations.ttl:30m}") Duration reservationTtl
+    ) {
+        this.iProductRepository = iProductRepository;
+        this.iSaleReservationRepository = iSaleReservationRepository;
+        this.productConsumer = productConsumer;
+        this.productCache = productCache;
+        this.mongoOperationMetrics = mongoOperationMetrics;
+        this.processedEventRegistry = processedEventRegistry;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.reservationTtl = reservationTtl;
+    }
+
+    private record AcceptedSale(ConsumerRecord<String, SaleEventDto> record, Map<Long, Long> demand) {
+    }
+
+    private record DeadLetter(ConsumerRecord<String, SaleEventDto> record, RuntimeException exception) {
+    }
+
+    @KafkaListener(
+            topics = "sale",
+            groupId = "product-group",
+            containerFactory = "saleBatchKafkaListenerFactory",
+            autoStartup = "#{'${product.kafka.sale.listener-mode:RECORD}' == 'BATCH'}"
+    )
+    public void saleBatchListener(List<ConsumerRecord<String, SaleEventDto>> records) {
+        List<ConsumerRecord<String, SaleEventDto>> segment = new ArrayList<>();
+        Set<String> segmentSales = new HashSet<>();
+
+        try (MongoOperationMetrics.Scope scope = mongoOperationMetrics.open("kafka sale BATCH")) {
+            for (ConsumerRecord<String, SaleEventDto> record : records) {
+                if (record.value() == null) {
+                    // The records before it are applied first, so the error handler can commit up to the unreadable
+                    // one, dead-letter it and redeliver the rest.
+                    processSegment(segment);
+                    throw new BatchListenerFailedException(
+                            "Sale event at " + record.topic() + "-" + record.partition() + "@" + record.offset() + " could not be read",
+                            unreadable(record),
+                            record
+                    );
+                }
+
+                String saleId = record.value().id();
+
+                if (!segmentSales.add(saleId)) {
+                    processSegment(segment);
+                    segment.clear();
+                    segmentSales.clear();
+                    segmentSales.add(saleId);
+                }
+
+                segment.add(record);
+            }
+
+            processSegment(segment);
+        }
+    }
+
+    private DeserializationException unreadable(ConsumerRecord<String, SaleEventDto> record) {
+        DeserializationException exception = SerializationUtils.getExceptionFromHeader(
+                record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER,
+                LOG_ACCESSOR
+        );
+
+        return exception != null ? exception : new DeserializationException("Sale event without a value", null, false, null);
+    }
+
+    private void processSegment(List<ConsumerRecord<String, SaleEventDto>> segment) {
+        if (segment.isEmpty()) {
+            return;
+        }
+
+        List<ConsumerRecord<String, SaleEventDto>> stockChanges = new ArrayList<>();
+        List<ConsumerRecord<String, SaleEventDto>> others = new ArrayList<>();
+
+        segment.forEach(record -> {
+            Status status = record.value().status();
+
+            if (status.equals(Status.CREATED) || status.equals(Status.CANCELED)) {
+                stockChanges.add(record);
+            } else {
+                others.add(record);
+            }
+        });
+
+        // The stock changes can run twice, after a duplicate key, or roll back, so sales are only sent to sale-dlt
+        // once the attempt that rejected them has committed.
+        List<DeadLetter> deadLetters = new ArrayList<>();
+        processedEventRegistry.runOnceAll(
+                stockChanges,
+                record -> record.value().id(),
+                record -> record.value().status(),
+                records -> {
+                    deadLetters.clear();
+                    applyStockChanges(records, deadLetters);
+                }
+        );
+        deadLetters.forEach(this::publish);
+
+        // The stock changes of the segment are applied by now, so once this throws, the records after the failing one
+        // are redelivered and skipped as already processed.
+        others.forEach(record -> {
+            try {
+                productConsumer.saleListener(record.value());
+            } catch (RuntimeException exception) {
+                throw new BatchListenerFailedException("Sale event " + record.value().id() + " failed", exception, record);
+            }
+        });
+    }
+
+    private void applyStockChanges(List<ConsumerRecord<String, SaleEventDto>> records, List<DeadLetter> deadLetters) {
+        List<ConsumerRecord<String, SaleEventDto>> created = new ArrayList<>();
+        List<ConsumerRecord<String, SaleEventDto>> canceled = new ArrayList<>();
+
+        records.forEach(record -> {
+            if (record.value().status().equals(Status.CREATED)) {
+                created.add(record);
+            } else {
+                canceled.add(record);
+            }
+        });
+
+        Map<Long, Long> restocks = new HashMap<>();
+        List<String> canceledIds = new ArrayList<>();
+
+        if (!canceled.isEmpty()) {
+            List<String> saleIds = canceled.stream()
+                    .map(record -> record.value().id())
+                    .toList();
+
+            iSaleReservationRepository.claimAll(
+                    saleIds,
+                    List.of(ReservationStatus.RESERVED, ReservationStatus.PURCHASED),
+                    ReservationStatus.CANCELED
+            ).forEach(reservation -> {
+                canceledIds.add(reservation.getId());
+                reservation.getItems().forEach(item -> restocks.merge(item.getBarCode(), item.getQuantity(), Long::sum));
+            });
+        }
+
+        Map<Long, Long> deltas = new HashMap<>(restocks);
+        Map<Long, Product> storedProducts = new HashMap<>();
+        List<AcceptedSale> accepted = new ArrayList<>();
+
+        if (!created.isEmpty()) {
+            Set<Long> barCodes = created.stream()
+                    .flatMap(record -> record.value().items().stream())
+                    .map(ItemEventDto::barCode)
+                    .collect(Collectors.toSet());
+
+            storedProducts.putAll(iProductRepository.withStock(iProductRepository.findByBarCodeIn(barCodes))
+                    .stream()
+                    .collect(Collectors.toMap(Product::getBarCode, Function.identity(), (first, second) -> first)));
+
+            Map<Long, Long> available = new HashMap<>();
+            storedProducts.forEach((barCode, product) ->
+                    available.put(barCode, product.getQuantity() + restocks.getOrDefault(barCode, 0L)));
+
+            for (ConsumerRecord<String, SaleEventDto> record : created) {
+                Map<Long, Long> demand = new LinkedHashMap<>();
+                record.value().items().forEach(item -> demand.merge(item.barCode(), item.quantity(), Long::sum));
+
+                RuntimeException failure = null;
+
+                for (Map.Entry<Long, Long> line : demand.entrySet()) {
+                    if (!storedProducts.containsKey(line.getKey())) {
+                        failure = new ProductNotFoundException();
+                        break;
+                    }
+
+                    if (available.get(line.getKey()) < line.getValue()) {
+                        failure = new InsufficientProductsException();
+                        break;
+                    }
+                }
+
+                if (failure != null) {
+                    deadLetters.add(deadLetter(record, failure));
+                    continue;
+                }
+
+                demand.forEach((barCode, quantity) -> {
+                    available.merge(barCode, -quantity, Long::sum);
+                    deltas.merge(barCode, -quantity, Long::sum);
+                });
+                accepted.add(new AcceptedSale(record, demand));
+            }
+        }
+
+        Set<Long> rejected = iProductRepository.adjustQuantities(deltas);
+
+        if (!rejected.isEmpty()) {
+            accepted = retryRejected(rejected, restocks, accepted, deadLetters);
+        }
+
+        deltas.keySet().forEach(productCache::evict);
+
+        // The canceled sales have their stock back by now, so their reservations are no longer needed. They are
+        // flagged first, so the expiry sweep only deletes them if the delete below never happens.
+        if (!canceledIds.isEmpty()) {
+            iSaleReservationRepository.markRestocked(canceledIds, ReservationStatus.CANCELED);
+            long deleted = iSaleReservationRepository.deleteClaimed(canceledIds, ReservationStatus.CANCELED);
+
+            if (deleted < canceledIds.size()) {
+                log.warn("{} of {} canceled reservations were already removed", canceledIds.size() - deleted, canceledIds.size());
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            LocalDateTime expiresAt = LocalDateTime.now().plus(reservationTtl);
+            List<SaleReservation> reservations = accepted.stream()
+                    .map(sale -> SaleReservation.builder()
+                            .saleId(sale.record().value().id())
+                            .status(ReservationStatus.RESERVED)
+                            .items(sale.demand().entrySet().stream()
+                                    .map(line -> Item.builder()
+                                            .id(storedProducts.get(line.getKey()).getId())
+                                            .barCode(line.getKey())
+                                            .value(storedProducts.get(line.getKey()).getValue())
+                                            .quantity(line.getValue())
+                                            .build())
+                                    .toList())
+                            .expiresAt(expiresAt)
+                            .build())
+                    .toList();
+
+            iSaleReservationRepository.insert(reservations);
+        }
+    }
+
+    private List<AcceptedSale> retryRejected(Set<Long> rejected, Map<Long, Long> restocks, List<AcceptedSale> accepted, List<DeadLetter> deadLetters) {
+        Map<Long, Long> rejectedRestocks = new HashMap<>();
+        restocks.forEach((barCode, quantity) -> {
+            if (rejected.contains(barCode)) {
+                rejectedRestocks.put(barCode, quantity);
+            }
+        });
+        iProductRepository.adjustQuantities(rejectedRestocks);
+
+        List<AcceptedSale> remaining = new ArrayList<>();
+
+        for (AcceptedSale sale : accepted) {
+            Map<Long, Long> taken = new HashMap<>();
+            RuntimeException failure = null;
+
+            for (Map.Entry<Long, Long> line : sale.demand().entrySet()) {
+                if (!rejected.contains(line.getKey())) {
+                    continue;
+                }
+
+                if (iProductRepository.decrementQuantity(line.getKey(), line.getValue()).isPresent()) {
+                    taken.put(line.getKey(), line.getValue());
+                } else {
+                    failure = iProductRepository.existsByBarCode(line.getKey())
+                            ? new InsufficientProductsException()
+                            : new ProductNotFoundException();
+                    break;
+                }
+            }
+
+            if (failure == null) {
+                remaining.add(sale);
+                continue;
+            }
+
+            Map<Long, Long> undo = new HashMap<>(taken);
+            sale.demand().forEach((barCode, quantity) -> {
+                if (!rejected.contains(barCode)) {
+                    undo.merge(barCode, quantity, Long::sum);
+                }
+            });
+            iProductRepository.adjustQuantities(undo);
+
+            deadLetters.add(deadLetter(sale.record(), failure));
+        }
+
+        return remaining;
+    }
+
+    // A missing product or short stock fails the same way on every attempt, so the sale goes straight to sale-dlt,
+    // like in record mode. Its marker is dropped with the batch's writes, as it was recorded but never applied.
+    private DeadLetter deadLetter(ConsumerRecord<String, SaleEventDto> record, RuntimeException exception) {
+        processedEventRegistry.forget(record.value().id(), record.value().status());
+        return new DeadLetter(record, exception);
+    }
+
+    private void publish(DeadLetter deadLetter) {
+        ConsumerRecord<String, SaleEventDto> record = deadLetter.record();
+
+        log.error(
+                "Sale event {} ({}) at {}-{}@{} failed: {}",
+                record.value().id(),
+                record.value().status(),
+                record.topic(),
+                record.partition(),
+                record.offset(),
+                deadLetter.exception().getMessage()
+        );
+
+        deadLetterPublishingRecoverer.accept(record, deadLetter.exception());
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException() {
+        super("Invalid page cursor!");
+    }
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
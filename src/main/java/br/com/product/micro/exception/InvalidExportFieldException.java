@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class InvalidExportFieldException extends RuntimeException {
+    public InvalidExportFieldException() {
+        super("Invalid export field!");
+    }
+
+    public InvalidExportFieldException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class InvalidImportFileException extends RuntimeException {
+    public InvalidImportFileException() {
+        super("Invalid import file!");
+    }
+
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
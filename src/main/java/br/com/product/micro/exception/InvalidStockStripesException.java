@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class InvalidStockStripesException extends RuntimeException {
+    public InvalidStockStripesException() {
+        super("Invalid stock stripe count!");
+    }
+
+    public InvalidStockStripesException(String message) {
+        super(message);
+    }
+}
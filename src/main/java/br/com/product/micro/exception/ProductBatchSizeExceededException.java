@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class ProductBatchSizeExceededException extends RuntimeException {
+    public ProductBatchSizeExceededException() {
+        super("Too many products requested at once!");
+    }
+
+    public ProductBatchSizeExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.product.micro.exception;
+
+public class SaleReservationNotFoundException extends RuntimeException {
+    public SaleReservationNotFoundException() {
+        super("Sale reservation not found!");
+    }
+
+    public SaleReservationNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -93,15 +93,39 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(defaultErrorResponse);
     }
 
-    @ExceptionHandler(ErrorDeletingReservedProductsException.class)
-    private ResponseEntity<DefaultErrorResponse> errorDeletingReservedProductsHandler(ErrorDeletingReservedProductsException exception) {
-        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, exception.getMessage());
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(defaultErrorResponse);
+    @ExceptionHandler(ProductBatchSizeExceededException.class)
+    private ResponseEntity<DefaultErrorResponse> productBatchSizeExceededHandler(ProductBatchSizeExceededException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(defaultErrorResponse);
     }
 
-    @ExceptionHandler(ErrorDeletingPurchasedProductsException.class)
-    private ResponseEntity<DefaultErrorResponse> errorDeletingPurchasedProductsHandler(ErrorDeletingPurchasedProductsException exception) {
-        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, exception.getMessage());
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(defaultErrorResponse);
+    @ExceptionHandler(InvalidImportFileException.class)
+    private ResponseEntity<DefaultErrorResponse> invalidImportFileHandler(InvalidImportFileException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(defaultErrorResponse);
+    }
+
+    @ExceptionHandler(InvalidExportFieldException.class)
+    private ResponseEntity<DefaultErrorResponse> invalidExportFieldHandler(InvalidExportFieldException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(defaultErrorResponse);
+    }
+
+    @ExceptionHandler(InvalidStockStripesException.class)
+    private ResponseEntity<DefaultErrorResponse> invalidStockStripesHandler(InvalidStockStripesException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(defaultErrorResponse);
+    }
+
+    @ExceptionHandler(SaleReservationNotFoundException.class)
+    private ResponseEntity<DefaultErrorResponse> saleReservationNotFoundHandler(SaleReservationNotFoundException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.NOT_FOUND, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(defaultErrorResponse);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    private ResponseEntity<DefaultErrorResponse> invalidCursorHandler(InvalidCursorException exception) {
+        DefaultErrorResponse defaultErrorResponse = new DefaultErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(defaultErrorResponse);
     }
 }
@@ -0,0 +1,126 @@
+package br.com.product.micro.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class MongoOperationMetrics implements CommandListener {
+    private static final String NO_OPERATION = "none";
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Operation {
+        private final String name;
+        private final long startedAt = System.nanoTime();
+        private int commands;
+        private long mongoNanos;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Duration slowCommand;
+    private final Duration slowOperation;
+
+    public MongoOperationMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${product.mongo.metrics.slow-command:100ms}") Duration slowCommand,
+            @Value("${product.mongo.metrics.slow-operation:500ms}") Duration slowOperation
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.slowCommand = slowCommand;
+        this.slowOperation = slowOperation;
+    }
+
+    public Scope open(String name) {
+        if (CURRENT.get() != null) {
+            return () -> {
+            };
+        }
+
+        Operation operation = new Operation(name);
+        CURRENT.set(operation);
+
+        return () -> close(operation);
+    }
+
+    private void close(Operation operation) {
+        CURRENT.remove();
+
+        long elapsed = System.nanoTime() - operation.startedAt;
+
+        DistributionSummary.builder("mongo.operation.commands")
+                .description("MongoDB commands sent per endpoint call or listener event")
+                .tag("operation", operation.name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(operation.commands);
+
+        Timer.builder("mongo.operation.time")
+                .description("Time spent in MongoDB per endpoint call or listener event")
+                .tag("operation", operation.name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(operation.mongoNanos, TimeUnit.NANOSECONDS);
+
+        if (elapsed > slowOperation.toNanos()) {
+            log.warn(
+                    "Slow operation {}: {} ms total, {} MongoDB commands taking {} ms",
+                    operation.name,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    operation.commands,
+                    TimeUnit.NANOSECONDS.toMillis(operation.mongoNanos)
+            );
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), "success");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), "failure");
+    }
+
+    private void record(String command, long nanos, String outcome) {
+        Operation operation = CURRENT.get();
+        String operationName = operation == null ? NO_OPERATION : operation.name;
+
+        if (operation != null) {
+            operation.commands++;
+            operation.mongoNanos += nanos;
+        }
+
+        Timer.builder("mongo.command")
+                .description("MongoDB command latency by calling operation")
+                .tag("operation", operationName)
+                .tag("command", command)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        if (nanos > slowCommand.toNanos()) {
+            log.warn("Slow MongoDB command {} in {}: {} ms", command, operationName, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.product.micro.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+@Component
+public class OperationTaggingInterceptor implements AsyncHandlerInterceptor {
+    private static final String SCOPE_ATTRIBUTE = OperationTaggingInterceptor.class.getName() + ".scope";
+
+    private final MongoOperationMetrics mongoOperationMetrics;
+
+    public OperationTaggingInterceptor(MongoOperationMetrics mongoOperationMetrics) {
+        this.mongoOperationMetrics = mongoOperationMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String operation = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+
+            request.setAttribute(SCOPE_ATTRIBUTE, mongoOperationMetrics.open(operation));
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        closeScope(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception exception) {
+        closeScope(request);
+    }
+
+    private void closeScope(HttpServletRequest request) {
+        Object scope = request.getAttribute(SCOPE_ATTRIBUTE);
+
+        if (scope instanceof MongoOperationMetrics.Scope operationScope) {
+            request.removeAttribute(SCOPE_ATTRIBUTE);
+            operationScope.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.product.micro.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event while virtual threads are enabled, so code that blocks a
+ * carrier thread (a monitor held across I/O, a native frame) shows up as the {@code jvm.threads.virtual.pinned}
+ * timer and a warning with the pinning frame.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "br.com.product.micro.";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${product.threads.pinned-threshold:20ms}") Duration threshold
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::pinned);
+        recording.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void pinned(RecordedEvent event) {
+        String frame = pinningFrame(event.getStackTrace());
+
+        Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier")
+                .tag("frame", frame)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frame);
+    }
+
+    private String pinningFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        RecordedFrame frame = frames.stream()
+                .filter(candidate -> typeName(candidate).startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .or(() -> frames.stream()
+                        .filter(candidate -> !typeName(candidate).startsWith("java.") && !typeName(candidate).startsWith("jdk."))
+                        .findFirst())
+                .orElse(frames.get(0));
+
+        return typeName(frame) + "." + frame.getMethod().getName();
+    }
+
+    private String typeName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName();
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.product.micro.migration;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductStock;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Moves the quantity and stripe count of products written before stock had its own collection into
+ * {@link ProductStock}. Unlike the reservation migration it runs before listeners and the web server start, as
+ * a product without its stock document would read as sold out. A completed run is recorded in the migrations
+ * collection, so later startups skip the scan of the product collection.
+ */
+@Slf4j
+@Component
+public class ProductStockMigration implements SmartInitializingSingleton {
+    private static final String MIGRATIONS = "migrations";
+    private static final String MARKER = "product-stock";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public ProductStockMigration(
+            MongoTemplate mongoTemplate,
+            @Value("${product.migration.stock.enabled:true}") boolean enabled,
+            @Value("${product.migration.stock.batch-size:500}") int batchSize
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled || mongoTemplate.exists(new Query(Criteria.where("_id").is(MARKER)), MIGRATIONS)) {
+            return;
+        }
+
+        String products = mongoTemplate.getCollectionName(Product.class);
+        Object lastId = null;
+        long migrated = 0;
+
+        while (true) {
+            Query query = new Query(Criteria.where("quantity").exists(true))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(batchSize);
+            query.fields().include("barCode", "quantity", "stockStripes");
+
+            if (lastId != null) {
+                query.addCriteria(Criteria.where("_id").gt(lastId));
+            }
+
+            List<Document> batch = mongoTemplate.find(query, Document.class, products);
+
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            // setOnInsert leaves stock written by a newer instance, or by an interrupted earlier run, untouched.
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductStock.class);
+            Date now = new Date();
+            batch.forEach(legacy -> {
+                Number quantity = legacy.get("quantity", Number.class);
+                Update update = new Update()
+                        .setOnInsert("quantity", quantity == null ? 0L : quantity.longValue())
+                        .setOnInsert("updatedAt", now);
+
+                if (legacy.get("stockStripes") != null) {
+                    update.setOnInsert("stripes", legacy.get("stockStripes"));
+                }
+
+                operations.upsert(new Query(Criteria.where("_id").is(legacy.get("barCode"))), update);
+            });
+            operations.execute();
+
+            mongoTemplate.updateMulti(
+                    new Query(Criteria.where("_id").in(batch.stream().map(legacy -> legacy.get("_id")).toList())),
+                    new Update().unset("quantity").unset("stockStripes"),
+                    products
+            );
+
+            migrated += batch.size();
+            lastId = batch.get(batch.size() - 1).get("_id");
+        }
+
+        if (migrated > 0) {
+            log.info("Moved the stock of {} products into {}", migrated, mongoTemplate.getCollectionName(ProductStock.class));
+        }
+
+        // Products written from now on never carry a quantity, so there is nothing left to move on later startups.
+        mongoTemplate.upsert(
+                new Query(Criteria.where("_id").is(MARKER)),
+                new Update().setOnInsert("completedAt", new Date()),
+                MIGRATIONS
+        );
+    }
+}
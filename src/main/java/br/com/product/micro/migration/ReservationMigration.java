@@ -0,0 +1,319 @@
+package br.com.product.micro.migration;
+
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Folds the legacy per-status sale collections into the reservation collection, compacts old reservations into
+ * line items and gives open ones an expiry. It runs on a background thread, pausing between batches, so the service
+ * starts and answers reads meanwhile. The Kafka listeners are the writers that would trip over a sale in the old
+ * shape, so their containers start paused and only resume once the migration is complete. A reservation read while
+ * the migration runs has its own sale migrated first, and the delivered sales archive waits for the migration. The
+ * expiry sweep only sees reservations with an expiry, which are set last, on reservations already compacted.
+ */
+@Slf4j
+@Component
+public class ReservationMigration implements SmartLifecycle {
+    private static final Map<String, ReservationStatus> LEGACY_COLLECTIONS = new LinkedHashMap<>();
+
+    static {
+        LEGACY_COLLECTIONS.put("delivered", ReservationStatus.DELIVERED);
+        LEGACY_COLLECTIONS.put("purchased", ReservationStatus.PURCHASED);
+        LEGACY_COLLECTIONS.put("reserved", ReservationStatus.RESERVED);
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pause;
+    private final Duration reservationTtl;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+    private volatile boolean complete;
+
+    public ReservationMigration(
+            MongoTemplate mongoTemplate,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            @Value("${product.migration.reservations.enabled:true}") boolean enabled,
+            @Value("${product.migration.reservations.batch-size:500}") int batchSize,
+            @Value("${product.migration.reservations.pause:100ms}") Duration pause,
+            @Value("${product.reservations.ttl:30m}") Duration reservationTtl
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.listenerRegistry = listenerRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.reservationTtl = reservationTtl;
+        this.complete = !enabled;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // Starts before the listener containers, so they are already paused when they start polling.
+    @Override
+    public int getPhase() {
+        return listenerRegistry.getPhase() - 1;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+
+        if (complete) {
+            return;
+        }
+
+        List<MessageListenerContainer> containers = List.copyOf(listenerRegistry.getAllListenerContainers());
+        containers.forEach(MessageListenerContainer::pause);
+        executor.submit(() -> migrate(containers));
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Moves a single sale into the current shape, so it can be read before the background run reaches it.
+     */
+    public void migrateSale(String saleId) {
+        if (complete) {
+            return;
+        }
+
+        Query sale = new Query(Criteria.where("saleId").is(saleId));
+        LEGACY_COLLECTIONS.forEach((collection, status) -> {
+            if (mongoTemplate.collectionExists(collection)) {
+                moveLegacySales(mongoTemplate.find(sale, Document.class, collection), collection, status);
+            }
+        });
+
+        Query reservation = new Query(Criteria.where("saleId").is(saleId).and("products").exists(true));
+        reservation.fields().include("products");
+        compact(mongoTemplate.find(reservation, Document.class, mongoTemplate.getCollectionName(SaleReservation.class)));
+
+        backfillExpiry(Criteria.where("saleId").is(saleId));
+    }
+
+    private void migrate(List<MessageListenerContainer> containers) {
+        try {
+            LEGACY_COLLECTIONS.forEach(this::migrateLegacyCollection);
+            compactReservations();
+            log.info("Set an expiry on {} open reservations", backfillExpiry(new Criteria()));
+
+            if (!Thread.currentThread().isInterrupted()) {
+                complete = true;
+                containers.forEach(MessageListenerContainer::resume);
+                log.info("Reservation migration complete, resumed {} listener containers", containers.size());
+            }
+        } catch (RuntimeException exception) {
+            log.error("Reservation migration stopped, listeners stay paused until a restart: {}", exception.getMessage(), exception);
+        }
+    }
+
+    private void migrateLegacyCollection(String collection, ReservationStatus status) {
+        if (!mongoTemplate.collectionExists(collection)) {
+            return;
+        }
+
+        String reservations = mongoTemplate.getCollectionName(SaleReservation.class);
+        Object lastId = null;
+        long migrated = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Document> batch = mongoTemplate.find(nextBatch(new Query(), lastId), Document.class, collection);
+
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            migrated += moveLegacySales(batch, collection, status);
+            lastId = batch.get(batch.size() - 1).get("_id");
+            sleep();
+        }
+
+        log.info("Moved {} sales from {} into {}", migrated, collection, reservations);
+    }
+
+    private int moveLegacySales(List<Document> batch, String collection, ReservationStatus status) {
+        String reservations = mongoTemplate.getCollectionName(SaleReservation.class);
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, reservations);
+        List<Object> migratedIds = batch.stream()
+                .filter(legacy -> legacy.getString("saleId") != null)
+                .map(legacy -> {
+                    Date now = new Date();
+                    Update update = new Update()
+                            .setOnInsert("status", status.name())
+                            .setOnInsert("items", compactItems(legacy.getList("products", Document.class, List.of())))
+                            .setOnInsert("createdAt", now)
+                            .setOnInsert("updatedAt", now);
+
+                    operations.upsert(new Query(Criteria.where("saleId").is(legacy.getString("saleId"))), update);
+                    return legacy.get("_id");
+                })
+                .toList();
+
+        if (!migratedIds.isEmpty()) {
+            operations.execute();
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(migratedIds)), collection);
+        }
+
+        return migratedIds.size();
+    }
+
+    private void compactReservations() {
+        String reservations = mongoTemplate.getCollectionName(SaleReservation.class);
+        Object lastId = null;
+        long compacted = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Query query = nextBatch(new Query(Criteria.where("products").exists(true)), lastId);
+            query.fields().include("products");
+
+            List<Document> batch = mongoTemplate.find(query, Document.class, reservations);
+
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            compact(batch);
+            compacted += batch.size();
+            lastId = batch.get(batch.size() - 1).get("_id");
+            sleep();
+        }
+
+        log.info("Compacted {} reservations into line items", compacted);
+    }
+
+    private void compact(List<Document> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SaleReservation.class);
+        batch.forEach(reservation -> {
+            Update update = new Update()
+                    .set("items", compactItems(reservation.getList("products", Document.class, List.of())))
+                    .unset("products");
+
+            operations.updateOne(
+                    new Query(Criteria.where("_id").is(reservation.get("_id")).and("products").exists(true)),
+                    update
+            );
+        });
+        operations.execute();
+    }
+
+    private long backfillExpiry(Criteria scope) {
+        String reservations = mongoTemplate.getCollectionName(SaleReservation.class);
+        Object lastId = null;
+        long backfilled = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Query query = nextBatch(new Query(new Criteria().andOperator(
+                    scope,
+                    Criteria.where("status").is(ReservationStatus.RESERVED.name()).and("expiresAt").exists(false)
+            )), lastId);
+            query.fields().include("createdAt");
+
+            List<Document> batch = mongoTemplate.find(query, Document.class, reservations);
+
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            // Reservations from before expiry existed count their time to live from creation.
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, reservations);
+            Date now = new Date();
+            batch.forEach(reservation -> {
+                Date createdAt = reservation.getDate("createdAt");
+                Date expiresAt = new Date((createdAt == null ? now : createdAt).getTime() + reservationTtl.toMillis());
+
+                operations.updateOne(
+                        new Query(Criteria.where("_id").is(reservation.get("_id")).and("expiresAt").exists(false)),
+                        new Update().set("expiresAt", expiresAt)
+                );
+            });
+            operations.execute();
+
+            backfilled += batch.size();
+            lastId = batch.get(batch.size() - 1).get("_id");
+
+            // A single sale migrated for a read is done after one short batch and should not wait out the pause.
+            if (batch.size() < batchSize) {
+                break;
+            }
+
+            sleep();
+        }
+
+        return backfilled;
+    }
+
+    private Query nextBatch(Query query, Object lastId) {
+        if (lastId != null) {
+            query.addCriteria(Criteria.where("_id").gt(lastId));
+        }
+
+        return query
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+    }
+
+    private List<Document> compactItems(List<Document> products) {
+        return products.stream()
+                .map(product -> new Document("_id", product.get("_id"))
+                        .append("barCode", product.get("barCode"))
+                        .append("value", product.get("value"))
+                        .append("quantity", product.get("quantity")))
+                .toList();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.SaleReservation;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IDeliveredArchiveBulkRepository {
+    public int archiveDelivered(LocalDateTime deliveredBefore, int limit);
+    public Optional<SaleReservation> findArchived(String saleId);
+}
@@ -0,0 +1,134 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.DeliveredArchiveBucket;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class IDeliveredArchiveBulkRepositoryImpl implements IDeliveredArchiveBulkRepository {
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public IDeliveredArchiveBulkRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public int archiveDelivered(LocalDateTime deliveredBefore, int limit) {
+        Query query = new Query(Criteria.where("status").is(ReservationStatus.DELIVERED).and("updatedAt").lt(deliveredBefore))
+                .with(Sort.by(Sort.Order.asc("updatedAt"), Sort.Order.asc("_id")))
+                .limit(limit);
+
+        List<SaleReservation> delivered = mongoTemplate.find(query, SaleReservation.class);
+
+        if (delivered.isEmpty()) {
+            return 0;
+        }
+
+        Map<LocalDate, List<SaleReservation>> days = new LinkedHashMap<>();
+        delivered.forEach(reservation -> days
+                .computeIfAbsent(reservation.getUpdatedAt().toLocalDate(), day -> new ArrayList<>())
+                .add(reservation));
+
+        // A bucket is keyed by its first sale, so a batch that stopped before its delete step rewrites the same
+        // buckets when it runs again instead of archiving those sales twice.
+        days.forEach((day, sales) -> mongoTemplate.save(DeliveredArchiveBucket.builder()
+                .id(DeliveredArchiveBucket.key(day, sales.get(0).getId()))
+                .day(day)
+                .saleIds(sales.stream().map(SaleReservation::getSaleId).toList())
+                .count(sales.size())
+                .sales(compress(sales))
+                .archivedAt(LocalDateTime.now())
+                .build()));
+
+        mongoTemplate.remove(
+                new Query(Criteria.where("id").in(delivered.stream().map(SaleReservation::getId).toList())
+                        .and("status").is(ReservationStatus.DELIVERED)),
+                SaleReservation.class
+        );
+
+        return delivered.size();
+    }
+
+    @Override
+    public Optional<SaleReservation> findArchived(String saleId) {
+        DeliveredArchiveBucket bucket = mongoTemplate.findOne(
+                new Query(Criteria.where("saleIds").is(saleId)),
+                DeliveredArchiveBucket.class
+        );
+
+        if (bucket == null) {
+            return Optional.empty();
+        }
+
+        return decompress(bucket.getSales())
+                .stream()
+                .filter(reservation -> saleId.equals(reservation.getSaleId()))
+                .findFirst();
+    }
+
+    private byte[] compress(List<SaleReservation> sales) {
+        List<Document> documents = sales.stream()
+                .map(reservation -> {
+                    Document document = new Document();
+                    mongoTemplate.getConverter().write(reservation, document);
+                    return document;
+                })
+                .toList();
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        DOCUMENT_CODEC.encode(new BsonBinaryWriter(buffer), new Document("sales", documents), EncoderContext.builder().build());
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            buffer.pipe(output);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private List<SaleReservation> decompress(byte[] sales) {
+        byte[] bson;
+
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(sales))) {
+            bson = input.readAllBytes();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return new RawBsonDocument(bson)
+                .decode(DOCUMENT_CODEC)
+                .getList("sales", Document.class)
+                .stream()
+                .map(document -> mongoTemplate.getConverter().read(SaleReservation.class, document))
+                .toList();
+    }
+}
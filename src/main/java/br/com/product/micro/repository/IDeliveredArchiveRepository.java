@@ -0,0 +1,9 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.DeliveredArchiveBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IDeliveredArchiveRepository extends MongoRepository<DeliveredArchiveBucket, String>, IDeliveredArchiveBulkRepository {
+}
@@ -0,0 +1,10 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.ProcessedEvent;
+
+import java.util.List;
+import java.util.Set;
+
+public interface IProcessedEventBulkRepository {
+    public Set<String> insertNew(List<ProcessedEvent> events);
+}
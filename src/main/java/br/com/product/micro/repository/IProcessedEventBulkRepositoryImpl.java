@@ -0,0 +1,45 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.ProcessedEvent;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IProcessedEventBulkRepositoryImpl implements IProcessedEventBulkRepository {
+    private final MongoTemplate mongoTemplate;
+
+    public IProcessedEventBulkRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Set<String> insertNew(List<ProcessedEvent> events) {
+        Set<String> duplicates = new HashSet<>();
+
+        if (events.isEmpty()) {
+            return duplicates;
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedEvent.class)
+                    .insert(events)
+                    .execute();
+        } catch (BulkOperationException exception) {
+            for (BulkWriteError error : exception.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw exception;
+                }
+
+                duplicates.add(events.get(error.getIndex()).getId());
+            }
+        }
+
+        return duplicates;
+    }
+}
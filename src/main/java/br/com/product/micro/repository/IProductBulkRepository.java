@@ -0,0 +1,14 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface IProductBulkRepository {
+    public Set<Integer> insertNew(List<Product> products);
+    public Stream<Product> streamCatalog(Collection<String> fields, LocalDateTime updatedSince, int batchSize);
+}
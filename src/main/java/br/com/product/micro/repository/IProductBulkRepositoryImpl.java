@@ -0,0 +1,155 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductStock;
+import br.com.product.micro.domain.ProductStockStripe;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class IProductBulkRepositoryImpl implements IProductBulkRepository {
+    private final MongoTemplate mongoTemplate;
+
+    public IProductBulkRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Set<Integer> insertNew(List<Product> products) {
+        Set<Integer> duplicates = new HashSet<>();
+
+        if (products.isEmpty()) {
+            return duplicates;
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)
+                    .insert(products)
+                    .execute();
+        } catch (BulkOperationException exception) {
+            for (BulkWriteError error : exception.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw exception;
+                }
+
+                duplicates.add(error.getIndex());
+            }
+        }
+
+        // Stock goes to its own collection; upserting it keeps a retried chunk from failing on stock it already wrote.
+        BulkOperations stock = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductStock.class);
+        LocalDateTime now = LocalDateTime.now();
+        boolean inserted = false;
+
+        for (int index = 0; index < products.size(); index++) {
+            if (duplicates.contains(index)) {
+                continue;
+            }
+
+            Product product = products.get(index);
+            stock.upsert(
+                    new Query(Criteria.where("barCode").is(product.getBarCode())),
+                    new Update().set("quantity", product.getQuantity()).set("updatedAt", now)
+            );
+            inserted = true;
+        }
+
+        if (inserted) {
+            stock.execute();
+        }
+
+        return duplicates;
+    }
+
+    @Override
+    public Stream<Product> streamCatalog(Collection<String> fields, LocalDateTime updatedSince, int batchSize) {
+        if (updatedSince == null) {
+            return mongoTemplate.stream(catalogQuery(fields).cursorBatchSize(batchSize), Product.class);
+        }
+
+        Query query = catalogQuery(fields)
+                .addCriteria(Criteria.where("updatedAt").gte(updatedSince))
+                .cursorBatchSize(batchSize);
+
+        // Sales no longer touch the catalog document, so products whose stock alone changed follow in a second pass.
+        return Stream.<Supplier<Stream<Product>>>of(
+                        () -> mongoTemplate.stream(query, Product.class),
+                        () -> streamStockChanges(fields, updatedSince, batchSize)
+                )
+                .flatMap(Supplier::get);
+    }
+
+    private Stream<Product> streamStockChanges(Collection<String> fields, LocalDateTime updatedSince, int batchSize) {
+        List<Long> stripedChanges = mongoTemplate.findDistinct(
+                new Query(Criteria.where("updatedAt").gte(updatedSince)),
+                "barCode",
+                ProductStockStripe.class,
+                Long.class
+        );
+
+        Query stockQuery = new Query(new Criteria().orOperator(
+                Criteria.where("updatedAt").gte(updatedSince),
+                Criteria.where("barCode").in(stripedChanges)
+        )).with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        stockQuery.fields().include("barCode");
+
+        Stream<ProductStock> stocks = mongoTemplate.stream(stockQuery, ProductStock.class);
+        Iterator<ProductStock> changed = stocks.iterator();
+        Iterator<List<Long>> chunks = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return changed.hasNext();
+            }
+
+            @Override
+            public List<Long> next() {
+                List<Long> chunk = new ArrayList<>(batchSize);
+
+                while (changed.hasNext() && chunk.size() < batchSize) {
+                    chunk.add(changed.next().getBarCode());
+                }
+
+                return chunk;
+            }
+        };
+
+        // Products whose catalog changed as well were already exported by the first pass.
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .flatMap(barCodes -> mongoTemplate.find(
+                        catalogQuery(fields)
+                                .addCriteria(Criteria.where("barCode").in(barCodes))
+                                .addCriteria(Criteria.where("updatedAt").lt(updatedSince)),
+                        Product.class
+                ).stream())
+                .onClose(stocks::close);
+    }
+
+    private Query catalogQuery(Collection<String> fields) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id"));
+
+        if (!fields.isEmpty()) {
+            query.fields().include(fields.toArray(String[]::new));
+        }
+
+        return query;
+    }
+}
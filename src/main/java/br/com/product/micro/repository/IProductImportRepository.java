@@ -1,9 +1,9 @@
 package br.com.product.micro.repository;
 
-import br.com.product.micro.domain.Delivered;
+import br.com.product.micro.domain.ProductImport;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface IDeliveredRepository extends MongoRepository<Delivered, String> {
+public interface IProductImportRepository extends MongoRepository<ProductImport, String> {
 }
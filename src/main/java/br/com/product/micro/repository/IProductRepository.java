@@ -1,12 +1,19 @@
 package br.com.product.micro.repository;
 
 import br.com.product.micro.domain.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface IProductRepository extends MongoRepository<Product, String> {
+public interface IProductRepository extends MongoRepository<Product, String>, IProductStockRepository, IProductBulkRepository {
     public Optional<Product> findByBarCode(Long code);
+    public boolean existsByBarCode(Long code);
+    public List<Product> findByBarCodeIn(Collection<Long> codes);
+    public List<Product> findAllByOrderByIdAsc(Limit limit);
+    public List<Product> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
@@ -0,0 +1,20 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface IProductStockRepository {
+    public Optional<Product> decrementQuantity(Long barCode, Long quantity);
+    public Set<Long> adjustQuantities(Map<Long, Long> deltas);
+    public Optional<Product> enableStriping(Long barCode, int stripes);
+    public Optional<Product> disableStriping(Long barCode);
+    public Optional<Product> rebalanceStripes(Long barCode);
+    public void saveStock(Long barCode, Long quantity);
+    public void deleteStock(Long barCode);
+    public Product withStock(Product product);
+    public List<Product> withStock(List<Product> products);
+}
@@ -0,0 +1,557 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductStock;
+import br.com.product.micro.domain.ProductStockStripe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock of a product lives in its {@link ProductStock} document, apart from the catalog, and for products flagged
+ * as hot also in {@code stripes} stripe documents, so concurrent sales of the same bar code write to different
+ * documents. The stock of a striped product is its own quantity plus the quantity of every stripe; restocks land
+ * on the stock document and a rebalance spreads them over the stripes.
+ */
+public class IProductStockRepositoryImpl implements IProductStockRepository {
+    private final MongoTemplate mongoTemplate;
+    // Bar codes known to be striped and their stripe count. Entries expire, so a change made by another
+    // instance is picked up after a while even when its stale routing keeps working.
+    private final Cache<Long, Integer> stripeCounts = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(30))
+            .build();
+
+    public IProductStockRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Product> decrementQuantity(Long barCode, Long quantity) {
+        Integer stripes = stripeCounts.getIfPresent(barCode);
+
+        if (stripes == null) {
+            Query query = new Query(Criteria.where("barCode").is(barCode).and("quantity").gte(quantity));
+            Update update = new Update()
+                    .inc("quantity", -quantity)
+                    .set("updatedAt", LocalDateTime.now());
+
+            ProductStock updated = mongoTemplate.findAndModify(
+                    query,
+                    update,
+                    FindAndModifyOptions.options().returnNew(true),
+                    ProductStock.class
+            );
+
+            if (updated != null) {
+                if (updated.getStripes() != null) {
+                    stripeCounts.put(barCode, updated.getStripes());
+                }
+
+                return findProduct(barCode).map(product -> combine(List.of(product), Map.of(barCode, updated)).get(0));
+            }
+
+            stripes = stripeCount(barCode);
+
+            if (stripes == 0) {
+                return Optional.empty();
+            }
+        }
+
+        if (!takeStriped(barCode, stripes, quantity)) {
+            return Optional.empty();
+        }
+
+        return findProduct(barCode).map(this::withStock);
+    }
+
+    @Override
+    public Set<Long> adjustQuantities(Map<Long, Long> deltas) {
+        Map<Long, Long> striped = new LinkedHashMap<>();
+        Map<Long, Long> plain = new LinkedHashMap<>();
+
+        deltas.forEach((barCode, delta) -> {
+            if (delta < 0 && stripeCounts.getIfPresent(barCode) != null) {
+                striped.put(barCode, delta);
+            } else {
+                plain.put(barCode, delta);
+            }
+        });
+
+        Set<Long> rejected = adjustStockQuantities(plain);
+
+        // A rejected decrement may belong to a product another instance striped, whose own quantity is mostly empty.
+        if (!rejected.isEmpty()) {
+            Query query = new Query(Criteria.where("barCode").in(rejected).and("stripes").exists(true));
+            query.fields().include("stripes");
+
+            mongoTemplate.find(query, ProductStock.class).forEach(stock -> {
+                stripeCounts.put(stock.getBarCode(), stock.getStripes());
+                rejected.remove(stock.getBarCode());
+                striped.put(stock.getBarCode(), deltas.get(stock.getBarCode()));
+            });
+        }
+
+        striped.forEach((barCode, delta) -> {
+            Integer stripes = stripeCounts.getIfPresent(barCode);
+
+            if (!takeStriped(barCode, stripes == null ? 1 : stripes, -delta)) {
+                rejected.add(barCode);
+            }
+        });
+
+        return rejected;
+    }
+
+    @Override
+    public Optional<Product> enableStriping(Long barCode, int stripes) {
+        if (findStock(barCode).isEmpty()) {
+            return Optional.empty();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductStockStripe.class);
+
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            Update update = new Update()
+                    .setOnInsert("barCode", barCode)
+                    .setOnInsert("stripe", stripe)
+                    .setOnInsert("quantity", 0L)
+                    .set("updatedAt", now);
+
+            operations.upsert(new Query(Criteria.where("id").is(ProductStockStripe.key(barCode, stripe))), update);
+        }
+
+        operations.execute();
+
+        mongoTemplate.updateFirst(
+                stockQuery(barCode),
+                new Update().set("stripes", stripes).set("updatedAt", now),
+                ProductStock.class
+        );
+        stripeCounts.put(barCode, stripes);
+
+        // Shrinking the stripe count returns the stock of the dropped stripes to the stock document first.
+        foldStripes(barCode, Criteria.where("stripe").gte(stripes));
+
+        return rebalanceStripes(barCode);
+    }
+
+    @Override
+    public Optional<Product> disableStriping(Long barCode) {
+        if (findStock(barCode).isEmpty()) {
+            return Optional.empty();
+        }
+
+        foldStripes(barCode, new Criteria());
+
+        mongoTemplate.updateFirst(
+                stockQuery(barCode),
+                new Update().unset("stripes").set("updatedAt", LocalDateTime.now()),
+                ProductStock.class
+        );
+        stripeCounts.invalidate(barCode);
+
+        return findProduct(barCode).map(this::withStock);
+    }
+
+    @Override
+    public Optional<Product> rebalanceStripes(Long barCode) {
+        Optional<ProductStock> stock = findStock(barCode);
+
+        if (stock.isEmpty() || stock.get().getStripes() == null) {
+            return findProduct(barCode).map(this::withStock);
+        }
+
+        int stripes = stock.get().getStripes();
+        long own = stock.get().getQuantity();
+        List<ProductStockStripe> current = findStripes(barCode);
+        long total = own + current.stream().mapToLong(ProductStockStripe::getQuantity).sum();
+
+        // Stock is taken out before it is handed back, so a concurrent sale can miss units in flight but a unit is
+        // never counted twice.
+        long pool = 0;
+
+        if (own > 0 && take(stockQuery(barCode), own, ProductStock.class)) {
+            pool += own;
+        }
+
+        for (ProductStockStripe stripe : current) {
+            long surplus = stripe.getQuantity() - target(total, stripes, stripe.getStripe());
+
+            if (surplus > 0 && take(stripeQuery(stripe.getId()), surplus, ProductStockStripe.class)) {
+                pool += surplus;
+            }
+        }
+
+        for (ProductStockStripe stripe : current) {
+            long deficit = target(total, stripes, stripe.getStripe()) - stripe.getQuantity();
+
+            if (deficit > 0 && pool > 0) {
+                long given = Math.min(deficit, pool);
+                giveToStripe(stripe.getId(), barCode, given);
+                pool -= given;
+            }
+        }
+
+        if (pool > 0) {
+            giveToStock(barCode, pool);
+        }
+
+        return findProduct(barCode).map(this::withStock);
+    }
+
+    @Override
+    public void saveStock(Long barCode, Long quantity) {
+        Optional<ProductStock> stock = findStock(barCode);
+
+        if (stock.isPresent() && stock.get().getStripes() != null) {
+            // A striped product has its stripes emptied and the new quantity spread over them again.
+            mongoTemplate.updateMulti(
+                    new Query(Criteria.where("barCode").is(barCode)),
+                    new Update().set("quantity", 0L).set("updatedAt", LocalDateTime.now()),
+                    ProductStockStripe.class
+            );
+        }
+
+        mongoTemplate.upsert(
+                stockQuery(barCode),
+                new Update().set("quantity", quantity).set("updatedAt", LocalDateTime.now()),
+                ProductStock.class
+        );
+
+        if (stock.isPresent() && stock.get().getStripes() != null) {
+            rebalanceStripes(barCode);
+        }
+    }
+
+    @Override
+    public void deleteStock(Long barCode) {
+        mongoTemplate.remove(new Query(Criteria.where("barCode").is(barCode)), ProductStockStripe.class);
+        mongoTemplate.remove(stockQuery(barCode), ProductStock.class);
+        stripeCounts.invalidate(barCode);
+    }
+
+    @Override
+    public Product withStock(Product product) {
+        return withStock(List.of(product)).get(0);
+    }
+
+    @Override
+    public List<Product> withStock(List<Product> products) {
+        if (products.isEmpty()) {
+            return products;
+        }
+
+        Map<Long, ProductStock> stocks = new HashMap<>();
+        mongoTemplate.find(
+                new Query(Criteria.where("barCode").in(products.stream().map(Product::getBarCode).toList())),
+                ProductStock.class
+        ).forEach(stock -> stocks.put(stock.getBarCode(), stock));
+
+        return combine(products, stocks);
+    }
+
+    private List<Product> combine(List<Product> products, Map<Long, ProductStock> stocks) {
+        List<Long> striped = stocks.values().stream()
+                .filter(stock -> stock.getStripes() != null)
+                .map(ProductStock::getBarCode)
+                .toList();
+
+        Map<Long, Long> stripedStock = new HashMap<>();
+
+        if (!striped.isEmpty()) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("barCode").in(striped)),
+                    Aggregation.group("barCode").sum("quantity").as("quantity")
+            );
+
+            mongoTemplate.aggregate(aggregation, ProductStockStripe.class, Document.class)
+                    .forEach(sum -> stripedStock.put(sum.get("_id", Number.class).longValue(), sum.get("quantity", Number.class).longValue()));
+        }
+
+        // A product whose stock document is missing is mid-creation or mid-deletion and has nothing to sell.
+        return products.stream()
+                .map(product -> stocks.getOrDefault(product.getBarCode(), new ProductStock(product.getBarCode(), 0L, null, null))
+                        .applyTo(product, stripedStock.getOrDefault(product.getBarCode(), 0L)))
+                .toList();
+    }
+
+    private Set<Long> adjustStockQuantities(Map<Long, Long> deltas) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return adjustEachStockQuantity(deltas);
+        }
+
+        List<Long> barCodes = new ArrayList<>();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductStock.class);
+        LocalDateTime now = LocalDateTime.now();
+
+        deltas.forEach((barCode, delta) -> {
+            if (delta == 0) {
+                return;
+            }
+
+            Update update = new Update()
+                    .inc("quantity", delta)
+                    .set("updatedAt", now);
+
+            // A decrement that no longer matches becomes an insert, which the _id index rejects since the stock
+            // document is keyed by bar code, so the bulk error tells which bar code was left untouched.
+            if (delta < 0) {
+                operations.upsert(new Query(Criteria.where("barCode").is(barCode).and("quantity").gte(-delta)), update);
+            } else {
+                operations.updateOne(new Query(Criteria.where("barCode").is(barCode)), update);
+            }
+
+            barCodes.add(barCode);
+        });
+
+        Set<Long> rejected = new HashSet<>();
+
+        if (barCodes.isEmpty()) {
+            return rejected;
+        }
+
+        BulkWriteResult result;
+
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException exception) {
+            for (BulkWriteError error : exception.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw exception;
+                }
+
+                rejected.add(barCodes.get(error.getIndex()));
+            }
+
+            result = exception.getResult();
+        }
+
+        List<BsonValue> insertedIds = new ArrayList<>();
+
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            rejected.add(barCodes.get(upsert.getIndex()));
+            insertedIds.add(upsert.getId());
+        }
+
+        // Only an unknown bar code gets inserted, with the negative delta as its quantity; a stock document created
+        // for it in the meantime holds a real quantity and is left alone.
+        if (!insertedIds.isEmpty()) {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(ProductStock.class))
+                    .deleteMany(Filters.and(Filters.in("_id", insertedIds), Filters.lt("quantity", 0)));
+        }
+
+        return rejected;
+    }
+
+    // Inside a transaction any write error aborts it, so the duplicate key trick above cannot report a rejected
+    // decrement; each line is a conditional update there instead, and one that matched nothing is rejected.
+    private Set<Long> adjustEachStockQuantity(Map<Long, Long> deltas) {
+        Set<Long> rejected = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        deltas.forEach((barCode, delta) -> {
+            if (delta == 0) {
+                return;
+            }
+
+            Criteria criteria = Criteria.where("barCode").is(barCode);
+
+            if (delta < 0) {
+                criteria = criteria.and("quantity").gte(-delta);
+            }
+
+            Update update = new Update()
+                    .inc("quantity", delta)
+                    .set("updatedAt", now);
+
+            if (mongoTemplate.updateFirst(new Query(criteria), update, ProductStock.class).getMatchedCount() == 0 && delta < 0) {
+                rejected.add(barCode);
+            }
+        });
+
+        return rejected;
+    }
+
+    private boolean takeStriped(Long barCode, int stripes, long quantity) {
+        int first = ThreadLocalRandom.current().nextInt(stripes);
+
+        for (int offset = 0; offset < stripes; offset++) {
+            String stripe = ProductStockStripe.key(barCode, (first + offset) % stripes);
+
+            if (take(stripeQuery(stripe), quantity, ProductStockStripe.class)) {
+                return true;
+            }
+        }
+
+        if (take(stockQuery(barCode), quantity, ProductStock.class)) {
+            return true;
+        }
+
+        return takeSpread(barCode, quantity);
+    }
+
+    // No single stripe holds enough, so the quantity is gathered from several and given back if it falls short.
+    private boolean takeSpread(Long barCode, long quantity) {
+        Optional<ProductStock> stock = findStock(barCode);
+
+        if (stock.isEmpty()) {
+            return false;
+        }
+
+        // Striping was turned off in the meantime, so later sales go straight to the stock document.
+        if (stock.get().getStripes() == null) {
+            stripeCounts.invalidate(barCode);
+        }
+
+        List<ProductStockStripe> stripes = findStripes(barCode);
+
+        long available = stock.get().getQuantity() + stripes.stream().mapToLong(ProductStockStripe::getQuantity).sum();
+
+        if (available < quantity) {
+            return false;
+        }
+
+        Map<String, Long> taken = new LinkedHashMap<>();
+        long remaining = quantity;
+
+        for (ProductStockStripe stripe : stripes) {
+            long amount = Math.min(remaining, stripe.getQuantity());
+
+            if (amount > 0 && take(stripeQuery(stripe.getId()), amount, ProductStockStripe.class)) {
+                taken.put(stripe.getId(), amount);
+                remaining -= amount;
+            }
+
+            if (remaining == 0) {
+                return true;
+            }
+        }
+
+        long fromStock = Math.min(remaining, stock.get().getQuantity());
+
+        if (fromStock > 0 && take(stockQuery(barCode), fromStock, ProductStock.class)) {
+            if (fromStock == remaining) {
+                return true;
+            }
+
+            giveToStock(barCode, fromStock);
+        }
+
+        taken.forEach((stripe, given) -> giveToStripe(stripe, barCode, given));
+
+        return false;
+    }
+
+    private void foldStripes(Long barCode, Criteria criteria) {
+        Query query = new Query(Criteria.where("barCode").is(barCode)).addCriteria(criteria);
+        query.fields().include("id");
+
+        for (ProductStockStripe stripe : mongoTemplate.find(query, ProductStockStripe.class)) {
+            ProductStockStripe removed = mongoTemplate.findAndRemove(stripeQuery(stripe.getId()), ProductStockStripe.class);
+
+            if (removed != null && removed.getQuantity() > 0) {
+                giveToStock(barCode, removed.getQuantity());
+            }
+        }
+    }
+
+    private int stripeCount(Long barCode) {
+        Query query = stockQuery(barCode);
+        query.fields().include("stripes");
+
+        ProductStock stock = mongoTemplate.findOne(query, ProductStock.class);
+
+        if (stock == null || stock.getStripes() == null) {
+            stripeCounts.invalidate(barCode);
+            return 0;
+        }
+
+        stripeCounts.put(barCode, stock.getStripes());
+
+        return stock.getStripes();
+    }
+
+    private long target(long total, int stripes, int stripe) {
+        return total / stripes + (stripe < total % stripes ? 1 : 0);
+    }
+
+    private boolean take(Query query, long quantity, Class<?> type) {
+        Query available = Query.of(query).addCriteria(Criteria.where("quantity").gte(quantity));
+        Update update = new Update()
+                .inc("quantity", -quantity)
+                .set("updatedAt", LocalDateTime.now());
+
+        return mongoTemplate.updateFirst(available, update, type).getModifiedCount() == 1;
+    }
+
+    private void giveToStripe(String stripe, Long barCode, long quantity) {
+        Update update = new Update()
+                .inc("quantity", quantity)
+                .set("updatedAt", LocalDateTime.now());
+
+        // A stripe folded away in the meantime hands the units to the stock document instead.
+        if (mongoTemplate.updateFirst(stripeQuery(stripe), update, ProductStockStripe.class).getModifiedCount() == 0) {
+            giveToStock(barCode, quantity);
+        }
+    }
+
+    private void giveToStock(Long barCode, long quantity) {
+        Update update = new Update()
+                .inc("quantity", quantity)
+                .set("updatedAt", LocalDateTime.now());
+
+        mongoTemplate.updateFirst(stockQuery(barCode), update, ProductStock.class);
+    }
+
+    private Optional<Product> findProduct(Long barCode) {
+        return Optional.ofNullable(mongoTemplate.findOne(new Query(Criteria.where("barCode").is(barCode)), Product.class));
+    }
+
+    private Optional<ProductStock> findStock(Long barCode) {
+        return Optional.ofNullable(mongoTemplate.findOne(stockQuery(barCode), ProductStock.class));
+    }
+
+    private List<ProductStockStripe> findStripes(Long barCode) {
+        return mongoTemplate.find(
+                new Query(Criteria.where("barCode").is(barCode)).with(Sort.by(Sort.Direction.ASC, "stripe")),
+                ProductStockStripe.class
+        );
+    }
+
+    private Query stockQuery(Long barCode) {
+        return new Query(Criteria.where("barCode").is(barCode));
+    }
+
+    private Query stripeQuery(String stripe) {
+        return new Query(Criteria.where("id").is(stripe));
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface IReactiveProductRepository extends ReactiveMongoRepository<Product, String>, IReactiveProductStockRepository {
+    public Mono<Product> findByBarCode(Long code);
+    public Flux<Product> findByBarCodeIn(Collection<Long> codes);
+    public Flux<Product> findAllBy(Pageable pageable);
+}
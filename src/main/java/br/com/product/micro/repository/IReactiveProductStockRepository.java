@@ -0,0 +1,10 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface IReactiveProductStockRepository {
+    public Flux<Product> withStock(List<Product> products);
+}
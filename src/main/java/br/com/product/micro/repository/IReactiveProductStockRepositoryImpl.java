@@ -0,0 +1,62 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductStock;
+import br.com.product.micro.domain.ProductStockStripe;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+public class IReactiveProductStockRepositoryImpl implements IReactiveProductStockRepository {
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public IReactiveProductStockRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<Product> withStock(List<Product> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Query query = new Query(Criteria.where("barCode").in(products.stream().map(Product::getBarCode).toList()));
+
+        return mongoTemplate.find(query, ProductStock.class)
+                .collectMap(ProductStock::getBarCode)
+                .flatMap(stocks -> stripedStock(stocks).map(striped -> products.stream()
+                        .map(product -> stocks.getOrDefault(product.getBarCode(), new ProductStock(product.getBarCode(), 0L, null, null))
+                                .applyTo(product, striped.getOrDefault(product.getBarCode(), 0L)))
+                        .toList()))
+                .flatMapIterable(combined -> combined);
+    }
+
+    private Mono<Map<Long, Long>> stripedStock(Map<Long, ProductStock> stocks) {
+        List<Long> striped = stocks.values().stream()
+                .filter(stock -> stock.getStripes() != null)
+                .map(ProductStock::getBarCode)
+                .toList();
+
+        if (striped.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("barCode").in(striped)),
+                Aggregation.group("barCode").sum("quantity").as("quantity")
+        );
+
+        return mongoTemplate.aggregate(aggregation, ProductStockStripe.class, Document.class)
+                .collectMap(
+                        sum -> sum.get("_id", Number.class).longValue(),
+                        sum -> sum.get("quantity", Number.class).longValue()
+                );
+    }
+}
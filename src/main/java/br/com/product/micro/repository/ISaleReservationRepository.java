@@ -0,0 +1,12 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.SaleReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ISaleReservationRepository extends MongoRepository<SaleReservation, String>, ISaleReservationTransitionRepository {
+    public Optional<SaleReservation> findBySaleId(String saleId);
+}
@@ -0,0 +1,19 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ISaleReservationTransitionRepository {
+    public boolean transition(String saleId, ReservationStatus from, ReservationStatus to);
+    public Optional<SaleReservation> claim(String saleId, Collection<ReservationStatus> from, ReservationStatus to);
+    public List<SaleReservation> claimAll(Collection<String> saleIds, Collection<ReservationStatus> from, ReservationStatus to);
+    public List<SaleReservation> claimExpired(LocalDateTime expiredBefore, LocalDateTime staleClaimBefore, int limit);
+    public long markRestocked(Collection<String> ids, ReservationStatus status);
+    public long deleteClaimed(Collection<String> ids, ReservationStatus status);
+    public long deleteRestocked(LocalDateTime staleClaimBefore);
+}
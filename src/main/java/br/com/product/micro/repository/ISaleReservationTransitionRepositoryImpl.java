@@ -0,0 +1,139 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class ISaleReservationTransitionRepositoryImpl implements ISaleReservationTransitionRepository {
+    private final MongoTemplate mongoTemplate;
+
+    public ISaleReservationTransitionRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean transition(String saleId, ReservationStatus from, ReservationStatus to) {
+        Query query = new Query(Criteria.where("saleId").is(saleId).and("status").is(from));
+        Update update = new Update()
+                .set("status", to)
+                .set("updatedAt", LocalDateTime.now());
+
+        return mongoTemplate.updateFirst(query, update, SaleReservation.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public Optional<SaleReservation> claim(String saleId, Collection<ReservationStatus> from, ReservationStatus to) {
+        Query query = new Query(Criteria.where("saleId").is(saleId).and("status").in(from));
+        Update update = new Update()
+                .set("status", to)
+                .set("restocked", false)
+                .set("updatedAt", LocalDateTime.now());
+
+        SaleReservation claimed = mongoTemplate.findAndModify(
+                query,
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                SaleReservation.class
+        );
+
+        return Optional.ofNullable(claimed);
+    }
+
+    @Override
+    public List<SaleReservation> claimAll(Collection<String> saleIds, Collection<ReservationStatus> from, ReservationStatus to) {
+        String transitionId = UUID.randomUUID().toString();
+        Query query = new Query(Criteria.where("saleId").in(saleIds).and("status").in(from));
+        Update update = new Update()
+                .set("status", to)
+                .set("transitionId", transitionId)
+                .set("restocked", false)
+                .set("updatedAt", LocalDateTime.now());
+
+        if (mongoTemplate.updateMulti(query, update, SaleReservation.class).getModifiedCount() == 0) {
+            return List.of();
+        }
+
+        return mongoTemplate.find(
+                new Query(Criteria.where("saleId").in(saleIds).and("transitionId").is(transitionId)),
+                SaleReservation.class
+        );
+    }
+
+    @Override
+    public List<SaleReservation> claimExpired(LocalDateTime expiredBefore, LocalDateTime staleClaimBefore, int limit) {
+        // Claims left EXPIRED by a sweep, or CANCELED by a consumer, that died before restocking them are taken over
+        // once they go stale. A cancel claim sets the flag to false, so sales canceled before it existed, which kept
+        // their reservation after the restock, are never restocked again.
+        Criteria expired = new Criteria().orOperator(
+                Criteria.where("status").is(ReservationStatus.RESERVED).and("expiresAt").lte(expiredBefore),
+                Criteria.where("status").is(ReservationStatus.EXPIRED).and("updatedAt").lte(staleClaimBefore)
+                        .and("restocked").ne(true),
+                Criteria.where("status").is(ReservationStatus.CANCELED).and("updatedAt").lte(staleClaimBefore)
+                        .and("restocked").is(false)
+        );
+
+        Query candidates = new Query(expired).limit(limit);
+        candidates.fields().include("id");
+
+        List<String> ids = mongoTemplate.find(candidates, SaleReservation.class)
+                .stream()
+                .map(SaleReservation::getId)
+                .toList();
+
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String transitionId = UUID.randomUUID().toString();
+        Query query = new Query(new Criteria().andOperator(Criteria.where("id").in(ids), expired));
+        Update update = new Update()
+                .set("status", ReservationStatus.EXPIRED)
+                .set("transitionId", transitionId)
+                .set("updatedAt", LocalDateTime.now());
+
+        if (mongoTemplate.updateMulti(query, update, SaleReservation.class).getModifiedCount() == 0) {
+            return List.of();
+        }
+
+        return mongoTemplate.find(
+                new Query(Criteria.where("id").in(ids).and("transitionId").is(transitionId)),
+                SaleReservation.class
+        );
+    }
+
+    @Override
+    public long markRestocked(Collection<String> ids, ReservationStatus status) {
+        Query query = new Query(Criteria.where("id").in(ids).and("status").is(status));
+        Update update = new Update()
+                .set("restocked", true)
+                .set("updatedAt", LocalDateTime.now());
+
+        return mongoTemplate.updateMulti(query, update, SaleReservation.class).getModifiedCount();
+    }
+
+    @Override
+    public long deleteClaimed(Collection<String> ids, ReservationStatus status) {
+        Query query = new Query(Criteria.where("id").in(ids).and("status").is(status));
+
+        return mongoTemplate.remove(query, SaleReservation.class).getDeletedCount();
+    }
+
+    @Override
+    public long deleteRestocked(LocalDateTime staleClaimBefore) {
+        Query query = new Query(Criteria.where("status").in(ReservationStatus.EXPIRED, ReservationStatus.CANCELED)
+                .and("updatedAt").lte(staleClaimBefore)
+                .and("restocked").is(true));
+
+        return mongoTemplate.remove(query, SaleReservation.class).getDeletedCount();
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.product.micro.scheduler;
+
+import br.com.product.micro.migration.ReservationMigration;
+import br.com.product.micro.repository.IDeliveredArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Moves delivered sales older than the configured age out of the reservations collection into compressed per-day
+ * buckets, so finished sales stop sharing the working set with open ones. Each batch writes its buckets before it
+ * deletes the reservations, which makes a run that stops halfway safe to repeat.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.archive.delivered.enabled", havingValue = "true", matchIfMissing = true)
+public class DeliveredSalesArchiver {
+    private final IDeliveredArchiveRepository iDeliveredArchiveRepository;
+    private final ReservationMigration reservationMigration;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration pause;
+    private final Timer runTimer;
+    private final Counter archivedCounter;
+
+    public DeliveredSalesArchiver(
+            IDeliveredArchiveRepository iDeliveredArchiveRepository,
+            ReservationMigration reservationMigration,
+            MeterRegistry meterRegistry,
+            @Value("${product.archive.delivered.min-age:30d}") Duration minAge,
+            @Value("${product.archive.delivered.batch-size:500}") int batchSize,
+            @Value("${product.archive.delivered.max-batches:100}") int maxBatches,
+            @Value("${product.archive.delivered.pause:100ms}") Duration pause
+    ) {
+        this.iDeliveredArchiveRepository = iDeliveredArchiveRepository;
+        this.reservationMigration = reservationMigration;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pause = pause;
+        this.runTimer = Timer.builder("reservations.archive.run")
+                .description("Duration of one delivered sales archival run")
+                .register(meterRegistry);
+        this.archivedCounter = Counter.builder("reservations.archived")
+                .description("Delivered sales moved into the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${product.archive.delivered.interval:1h}",
+            fixedDelayString = "${product.archive.delivered.interval:1h}"
+    )
+    public void archive() {
+        // Delivered sales still in the old shape would be archived without their line items.
+        if (!reservationMigration.isComplete()) {
+            log.info("Skipping delivered sales archival until the reservation migration is complete");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        LocalDateTime deliveredBefore = LocalDateTime.now().minus(minAge);
+        long archived = 0;
+        int batches = 0;
+
+        try {
+            while (batches < maxBatches && !Thread.currentThread().isInterrupted()) {
+                int moved = iDeliveredArchiveRepository.archiveDelivered(deliveredBefore, batchSize);
+
+                if (moved == 0) {
+                    break;
+                }
+
+                archivedCounter.increment(moved);
+                archived += moved;
+                batches++;
+
+                if (moved < batchSize) {
+                    break;
+                }
+
+                sleep();
+            }
+        } catch (RuntimeException exception) {
+            log.error("Delivered sales archival stopped after {} batches: {}", batches, exception.getMessage(), exception);
+        } finally {
+            runTimer.record(Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} delivered sales in {} batches", archived, batches);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package br.com.product.micro.scheduler;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Returns the stock of reservations whose sale was never paid or canceled. A reservation is claimed by moving it
+ * from RESERVED to EXPIRED, the same conditional transition a PAID event needs, so each sale is either paid or
+ * expired, never both. Claimed reservations are restocked with one bulk write per batch, flagged as restocked and
+ * then deleted. A sweep that dies in between leaves a stale claim: one that was never restocked is claimed again,
+ * one that was is only deleted. Canceled reservations go through the same claim, flag and delete steps, so a cancel
+ * whose restock failed is picked up here once its claim goes stale. With transactions enabled the restock and the
+ * flag commit together; without them a crash between the two writes can still restock a batch twice.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.reservations.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class ReservationExpirySweeper {
+    private final ISaleReservationRepository iSaleReservationRepository;
+    private final IProductRepository iProductRepository;
+    private final ProductCache productCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration staleClaim;
+    private final Timer sweepTimer;
+    private final Counter expiredCounter;
+    private final Counter restockedCounter;
+
+    public ReservationExpirySweeper(
+            ISaleReservationRepository iSaleReservationRepository,
+            IProductRepository iProductRepository,
+            ProductCache productCache,
+            Optional<MongoTransactionManager> transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${product.reservations.expiry.batch-size:500}") int batchSize,
+            @Value("${product.reservations.expiry.max-batches:20}") int maxBatches,
+            @Value("${product.reservations.expiry.stale-claim:10m}") Duration staleClaim
+    ) {
+        this.iSaleReservationRepository = iSaleReservationRepository;
+        this.iProductRepository = iProductRepository;
+        this.productCache = productCache;
+        this.transactionTemplate = transactionManager.map(TransactionTemplate::new).orElse(null);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.staleClaim = staleClaim;
+        this.sweepTimer = Timer.builder("reservations.expiry.sweep")
+                .description("Duration of one reservation expiry run")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("reservations.expired")
+                .description("Reservations expired and deleted")
+                .register(meterRegistry);
+        this.restockedCounter = Counter.builder("reservations.expired.restocked")
+                .description("Product units returned to stock by expired reservations")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${product.reservations.expiry.interval:1m}",
+            fixedDelayString = "${product.reservations.expiry.interval:1m}"
+    )
+    public void sweep() {
+        long startedAt = System.nanoTime();
+        long expired = 0;
+        long restocked = 0;
+        int batches = 0;
+
+        try {
+            long leftovers = iSaleReservationRepository.deleteRestocked(LocalDateTime.now().minus(staleClaim));
+
+            if (leftovers > 0) {
+                log.info("Deleted {} expired or canceled reservations restocked earlier", leftovers);
+            }
+
+            while (batches < maxBatches) {
+                LocalDateTime now = LocalDateTime.now();
+                List<SaleReservation> claimed = iSaleReservationRepository.claimExpired(now, now.minus(staleClaim), batchSize);
+
+                if (claimed.isEmpty()) {
+                    break;
+                }
+
+                Map<Long, Long> restocks = new HashMap<>();
+                claimed.forEach(reservation -> reservation.getItems()
+                        .forEach(item -> restocks.merge(item.getBarCode(), item.getQuantity(), Long::sum)));
+
+                List<String> ids = claimed.stream().map(SaleReservation::getId).toList();
+
+                restock(ids, restocks);
+                restocks.keySet().forEach(productCache::evict);
+                iSaleReservationRepository.deleteClaimed(ids, ReservationStatus.EXPIRED);
+
+                long units = restocks.values().stream().mapToLong(Long::longValue).sum();
+                expiredCounter.increment(claimed.size());
+                restockedCounter.increment(units);
+                expired += claimed.size();
+                restocked += units;
+                batches++;
+
+                if (claimed.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException exception) {
+            log.error("Reservation expiry stopped after {} batches: {}", batches, exception.getMessage(), exception);
+        } finally {
+            sweepTimer.record(Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+
+        if (expired > 0) {
+            log.info("Expired {} reservations in {} batches, restocking {} units", expired, batches, restocked);
+        }
+    }
+
+    private void restock(List<String> ids, Map<Long, Long> restocks) {
+        if (transactionTemplate == null) {
+            iProductRepository.adjustQuantities(restocks);
+            iSaleReservationRepository.markRestocked(ids, ReservationStatus.EXPIRED);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(transaction -> {
+            iProductRepository.adjustQuantities(restocks);
+            iSaleReservationRepository.markRestocked(ids, ReservationStatus.EXPIRED);
+        });
+    }
+}
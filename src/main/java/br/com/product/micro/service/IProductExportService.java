@@ -0,0 +1,12 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Product;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface IProductExportService {
+    public void validateFields(List<String> fields);
+    public long exportProducts(List<String> fields, LocalDateTime updatedSince, Consumer<Product> writer);
+}
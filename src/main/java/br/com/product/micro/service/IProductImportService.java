@@ -0,0 +1,11 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.ImportFormat;
+import br.com.product.micro.domain.ProductImport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IProductImportService {
+    public ProductImport importProducts(String importId, ImportFormat format, InputStream input, ProductImportListener listener) throws IOException;
+}
@@ -1,15 +1,26 @@
 package br.com.product.micro.service;
 
 import br.com.product.micro.dto.request.PurchaseProductDto;
+import br.com.product.micro.domain.BasketPurchase;
 import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductCursorPage;
+import br.com.product.micro.domain.ProductLookup;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface IProductService {
     public Product createProduct(Product product);
     public Boolean deleteProduct(Long code);
     public Product getProduct(Long code);
+    public ProductLookup getProducts(List<Long> codes);
     public Page<Product> listProduct(Pageable pageable);
+    public ProductCursorPage listProductAfter(String cursor, int size, boolean withTotal);
     public Product updateProduct(Product product);
     public Product removeProductQuantity(PurchaseProductDto productDto);
+    public BasketPurchase removeProductQuantities(List<PurchaseProductDto> items);
+    public Product enableStockStriping(Long code, int stripes);
+    public Product disableStockStriping(Long code);
+    public Product rebalanceStockStripes(Long code);
 }
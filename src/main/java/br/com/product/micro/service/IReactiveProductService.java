@@ -0,0 +1,14 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductLookup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface IReactiveProductService {
+    public Mono<Product> getProduct(Long code);
+    public Mono<ProductLookup> getProducts(List<Long> codes);
+    public Flux<Product> listProduct(int page, int size);
+}
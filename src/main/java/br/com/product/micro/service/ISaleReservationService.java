@@ -0,0 +1,11 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.ReservationLine;
+import br.com.product.micro.domain.SaleReservation;
+
+import java.util.List;
+
+public interface ISaleReservationService {
+    public SaleReservation getReservation(String saleId);
+    public List<ReservationLine> resolveItems(SaleReservation reservation);
+}
@@ -0,0 +1,100 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.exception.InvalidExportFieldException;
+import br.com.product.micro.repository.IProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class ProductExportService implements IProductExportService {
+    private static final Set<String> PRODUCT_FIELDS = Arrays.stream(Product.class.getDeclaredFields())
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+    private static final Set<String> STOCK_FIELDS = Set.of("quantity", "stockStripes");
+
+    private final IProductRepository productRepository;
+    private final int batchSize;
+
+    public ProductExportService(
+            IProductRepository productRepository,
+            @Value("${product.export.batch-size:1000}") int batchSize
+    ) {
+        this.productRepository = productRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void validateFields(List<String> fields) {
+        List<String> unknown = fields.stream()
+                .filter(field -> !PRODUCT_FIELDS.contains(field))
+                .toList();
+
+        if (!unknown.isEmpty()) {
+            throw new InvalidExportFieldException("Unknown product fields " + String.join(", ", unknown) + "!");
+        }
+    }
+
+    @Override
+    public long exportProducts(List<String> fields, LocalDateTime updatedSince, Consumer<Product> writer) {
+        validateFields(fields);
+
+        // Stock lives apart from the catalog and is joined per chunk, which needs the bar code of every product.
+        boolean withStock = fields.isEmpty() || fields.stream().anyMatch(STOCK_FIELDS::contains);
+        List<String> projection = withStock && !fields.isEmpty() && !fields.contains("barCode")
+                ? Stream.concat(fields.stream(), Stream.of("barCode")).toList()
+                : fields;
+
+        List<Product> chunk = new ArrayList<>(batchSize);
+        long exported = 0;
+
+        try (Stream<Product> products = productRepository.streamCatalog(projection, updatedSince, batchSize)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                chunk.add(product);
+
+                if (chunk.size() == batchSize) {
+                    exported += write(chunk, fields, withStock, writer);
+                }
+            }
+        }
+
+        return exported + write(chunk, fields, withStock, writer);
+    }
+
+    private long write(List<Product> chunk, List<String> fields, boolean withStock, Consumer<Product> writer) {
+        List<Product> products = withStock && !chunk.isEmpty() ? productRepository.withStock(chunk) : chunk;
+
+        products.forEach(product -> {
+            if (!fields.isEmpty()) {
+                if (!fields.contains("barCode")) {
+                    product.setBarCode(null);
+                }
+
+                if (!fields.contains("quantity")) {
+                    product.setQuantity(null);
+                }
+
+                if (!fields.contains("stockStripes")) {
+                    product.setStockStripes(null);
+                }
+            }
+
+            writer.accept(product);
+        });
+
+        long written = chunk.size();
+        chunk.clear();
+
+        return written;
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.ImportRowError;
+import br.com.product.micro.domain.ProductImport;
+
+public interface ProductImportListener {
+    public void rowRejected(ImportRowError error);
+    public void checkpoint(ProductImport productImport);
+}
@@ -0,0 +1,229 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.*;
+import br.com.product.micro.dto.request.CreateProductDto;
+import br.com.product.micro.exception.InvalidImportFileException;
+import br.com.product.micro.repository.IProductImportRepository;
+import br.com.product.micro.repository.IProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductImportService implements IProductImportService {
+    private static final List<String> CSV_COLUMNS = Arrays.stream(CreateProductDto.class.getRecordComponents())
+            .map(component -> component.getName())
+            .toList();
+
+    private record PendingRow(long line, Product product) {
+    }
+
+    private final IProductRepository productRepository;
+    private final IProductImportRepository productImportRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public ProductImportService(
+            IProductRepository productRepository,
+            IProductImportRepository productImportRepository,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${product.import.chunk-size:1000}") int chunkSize
+    ) {
+        this.productRepository = productRepository;
+        this.productImportRepository = productImportRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the file line by line and writes valid rows in unordered bulk chunks. After each chunk the import
+     * checkpoint records the last line it covers, so sending the same file again with the same import id skips
+     * everything up to that line. Rows of a chunk interrupted mid-write come back as duplicates on resume.
+     */
+    @Override
+    public ProductImport importProducts(String importId, ImportFormat format, InputStream input, ProductImportListener listener) throws IOException {
+        ProductImport productImport = productImportRepository.findById(importId)
+                .orElseGet(() -> ProductImport.builder()
+                        .id(importId)
+                        .format(format)
+                        .build());
+
+        if (productImport.getFormat() != format) {
+            throw new InvalidImportFileException("The import " + importId + " was started as " + productImport.getFormat() + "!");
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = format == ImportFormat.CSV ? readCsvHeader(reader) : null;
+        long resumeAfter = productImport.getLastLine();
+        long lineNumber = header == null ? 0 : 1;
+        List<PendingRow> chunk = new ArrayList<>();
+        String line;
+
+        productImport.setStatus(ImportStatus.RUNNING);
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            if (lineNumber <= resumeAfter || line.isBlank()) {
+                continue;
+            }
+
+            CreateProductDto productDto;
+
+            try {
+                productDto = header == null
+                        ? objectMapper.readValue(line, CreateProductDto.class)
+                        : objectMapper.convertValue(csvRow(header, line), CreateProductDto.class);
+            } catch (JsonProcessingException | IllegalArgumentException exception) {
+                reject(productImport, listener, new ImportRowError(lineNumber, null, "Malformed row!"));
+                continue;
+            }
+
+            Set<ConstraintViolation<CreateProductDto>> violations = validator.validate(productDto);
+
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(" "));
+                reject(productImport, listener, new ImportRowError(lineNumber, productDto.barCode(), message));
+                continue;
+            }
+
+            chunk.add(new PendingRow(lineNumber, toProduct(productDto)));
+
+            if (chunk.size() >= chunkSize) {
+                writeChunk(productImport, chunk, lineNumber, listener);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            writeChunk(productImport, chunk, lineNumber, listener);
+        }
+
+        productImport.setLastLine(Math.max(lineNumber, resumeAfter));
+        productImport.setStatus(ImportStatus.COMPLETED);
+        ProductImport completed = productImportRepository.save(productImport);
+        listener.checkpoint(completed);
+
+        return completed;
+    }
+
+    private void writeChunk(ProductImport productImport, List<PendingRow> chunk, long lastLine, ProductImportListener listener) {
+        Set<Integer> duplicates = productRepository.insertNew(chunk.stream().map(PendingRow::product).toList());
+
+        duplicates.stream()
+                .sorted()
+                .map(chunk::get)
+                .forEach(row -> listener.rowRejected(new ImportRowError(row.line(), row.product().getBarCode(), "Product already registered!")));
+
+        productImport.setImported(productImport.getImported() + chunk.size() - duplicates.size());
+        productImport.setDuplicates(productImport.getDuplicates() + duplicates.size());
+        productImport.setLastLine(lastLine);
+
+        listener.checkpoint(productImportRepository.save(productImport));
+    }
+
+    private void reject(ProductImport productImport, ProductImportListener listener, ImportRowError error) {
+        productImport.setInvalid(productImport.getInvalid() + 1);
+        listener.rowRejected(error);
+    }
+
+    private Product toProduct(CreateProductDto productDto) {
+        return Product.builder()
+                .name(productDto.name())
+                .barCode(productDto.barCode())
+                .brand(productDto.brand())
+                .weight(productDto.weight())
+                .quantity(productDto.quantity())
+                .value(productDto.value())
+                .classification(productDto.classification())
+                .description(productDto.description())
+                .manufacturingDate(productDto.manufacturing())
+                .expirationDate(productDto.expiration())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private List<String> readCsvHeader(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+
+        if (line == null) {
+            throw new InvalidImportFileException("The CSV file is empty!");
+        }
+
+        List<String> header = splitCsv(line).stream().map(String::trim).toList();
+        List<String> missing = CSV_COLUMNS.stream().filter(column -> !header.contains(column)).toList();
+
+        if (!missing.isEmpty()) {
+            throw new InvalidImportFileException("The CSV header is missing the columns " + String.join(", ", missing) + "!");
+        }
+
+        return header;
+    }
+
+    private Map<String, String> csvRow(List<String> header, String line) {
+        List<String> values = splitCsv(line);
+
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + values.size());
+        }
+
+        Map<String, String> row = new HashMap<>();
+
+        for (int index = 0; index < header.size(); index++) {
+            String value = values.get(index).trim();
+            row.put(header.get(index), value.isEmpty() ? null : value);
+        }
+
+        return row;
+    }
+
+    private List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int index = 0; index < line.length(); index++) {
+            char character = line.charAt(index);
+
+            if (quoted) {
+                if (character == '"' && index + 1 < line.length() && line.charAt(index + 1) == '"') {
+                    value.append('"');
+                    index++;
+                } else if (character == '"') {
+                    quoted = false;
+                } else {
+                    value.append(character);
+                }
+            } else if (character == '"') {
+                quoted = true;
+            } else if (character == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(character);
+            }
+        }
+
+        values.add(value.toString());
+
+        return values;
+    }
+}
@@ -1,37 +1,82 @@
 package br.com.product.micro.service;
 
+import br.com.product.micro.cache.ProductCache;
 import br.com.product.micro.dto.request.PurchaseProductDto;
+import br.com.product.micro.domain.BasketPurchase;
 import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductCursorPage;
+import br.com.product.micro.domain.ProductLookup;
+import br.com.product.micro.domain.PurchaseLine;
+import br.com.product.micro.domain.PurchaseLineStatus;
 import br.com.product.micro.exception.*;
 import br.com.product.micro.repository.IProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class ProductService implements IProductService {
     private final IProductRepository productRepository;
+    private final ProductCache productCache;
+    private final ProductStockLedger productStockLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final int maxStockStripes;
 
-    public ProductService(IProductRepository productRepository) {
+    public ProductService(
+            IProductRepository productRepository,
+            ProductCache productCache,
+            ProductStockLedger productStockLedger,
+            Optional<MongoTransactionManager> transactionManager,
+            @Value("${product.data.max-batch-size:500}") int maxBatchSize,
+            @Value("${product.stock.stripes.max:64}") int maxStockStripes
+    ) {
         this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.productStockLedger = productStockLedger;
+        this.transactionTemplate = transactionManager.map(TransactionTemplate::new).orElse(null);
+        this.maxBatchSize = maxBatchSize;
+        this.maxStockStripes = maxStockStripes;
     }
 
     @Override
     public Product createProduct(Product product) {
-        Optional<Product> existingProduct = productRepository.findByBarCode(product.getBarCode());
+        Product newProduct;
 
-        if (existingProduct.isPresent()) {
+        try {
+            newProduct = productRepository.insert(product);
+        } catch (DuplicateKeyException exception) {
             throw new ProductAlreadyRegisteredException();
         }
 
-        Product newProduct = productRepository.save(product);
-
         if (newProduct.getId().isBlank()) {
             throw new ErrorCreatingProductException();
         }
 
+        productRepository.saveStock(newProduct.getBarCode(), newProduct.getQuantity());
+        productCache.put(newProduct);
+
         return newProduct;
     }
 
@@ -44,6 +89,9 @@ public class ProductService implements IProductService {
         }
 
         productRepository.deleteById(product.get().getId());
+        productRepository.deleteStock(code);
+
+        productCache.evict(code);
         Optional<Product> deletedProduct = productRepository.findByBarCode(code);
 
         if(deletedProduct.isPresent()) {
@@ -55,7 +103,8 @@ public class ProductService implements IProductService {
 
     @Override
     public Product getProduct(Long code) {
-        Optional<Product> product = productRepository.findByBarCode(code);
+        Optional<Product> product = productCache.get(code, barCode -> productRepository.findByBarCode(barCode)
+                .map(productRepository::withStock));
 
         if(!product.isPresent()) {
             throw new ProductNotFoundException();
@@ -64,24 +113,50 @@ public class ProductService implements IProductService {
         return product.get();
     }
 
+    @Override
+    public ProductLookup getProducts(List<Long> codes) {
+        if (codes.size() > maxBatchSize) {
+            throw new ProductBatchSizeExceededException("It is only possible to request up to " + maxBatchSize + " products at once!");
+        }
+
+        Map<Long, Product> storedProducts = productCache.getAll(
+                new HashSet<>(codes),
+                missingCodes -> productRepository.withStock(productRepository.findByBarCodeIn(missingCodes))
+                        .stream()
+                        .collect(Collectors.toMap(Product::getBarCode, Function.identity(), (first, second) -> first))
+        );
+
+        return ProductLookup.of(codes, storedProducts);
+    }
+
     @Override
     public Page<Product> listProduct(Pageable pageable) {
-        return productRepository.findAll(pageable)
-                .map(product -> new Product(
-                        product.getId(),
-                        product.getName(),
-                        product.getBarCode(),
-                        product.getBrand(),
-                        product.getWeight(),
-                        product.getQuantity(),
-                        product.getValue(),
-                        product.getClassification(),
-                        product.getDescription(),
-                        product.getManufacturingDate(),
-                        product.getExpirationDate(),
-                        product.getCreatedAt(),
-                        product.getUpdatedAt()
-                ));
+        Page<Product> page = productRepository.findAll(pageable);
+
+        return new PageImpl<>(productRepository.withStock(page.getContent()), pageable, page.getTotalElements());
+    }
+
+    @Override
+    public ProductCursorPage listProductAfter(String cursor, int size, boolean withTotal) {
+        if (size < 1 || size > maxBatchSize) {
+            throw new ProductBatchSizeExceededException("The page size must be between 1 and " + maxBatchSize + "!");
+        }
+
+        Limit limit = Limit.of(size + 1);
+        List<Product> products = cursor == null || cursor.isBlank()
+                ? productRepository.findAllByOrderByIdAsc(limit)
+                : productRepository.findByIdGreaterThanOrderByIdAsc(decodeCursor(cursor), limit);
+
+        String nextCursor = null;
+
+        if (products.size() > size) {
+            products = products.subList(0, size);
+            nextCursor = encodeCursor(products.get(size - 1).getId());
+        }
+
+        Long totalElements = withTotal ? productRepository.count() : null;
+
+        return new ProductCursorPage(productRepository.withStock(products), nextCursor, totalElements);
     }
 
     @Override
@@ -99,7 +174,18 @@ public class ProductService implements IProductService {
         product.setId(existingProduct.get().getId());
         product.setCreatedAt(existingProduct.get().getCreatedAt());
 
-        Product updatedProduct = productRepository.save(product);
+        // The catalog document is only rewritten when a catalog field changed; the quantity lives in the stock document.
+        if (catalogOf(product).equals(catalogOf(existingProduct.get()))) {
+            product.setUpdatedAt(existingProduct.get().getUpdatedAt());
+        } else {
+            product = productRepository.save(product);
+        }
+
+        // On a striped product the quantity sent is the whole stock, spread over its stripes again.
+        productRepository.saveStock(product.getBarCode(), product.getQuantity());
+
+        Product updatedProduct = productRepository.withStock(product);
+        productCache.put(updatedProduct);
 
         return updatedProduct;
     }
@@ -109,15 +195,148 @@ public class ProductService implements IProductService {
         Long barCode = productDto.barCode();
         Long quantityPurchased = productDto.quantityPurchased();
 
-        Product product = getProduct(barCode);
-        Long quantity = product.getQuantity();
+        Optional<Product> updatedProduct = productStockLedger.decrement(barCode, quantityPurchased);
+
+        if (!updatedProduct.isPresent()) {
+            if (!productRepository.existsByBarCode(barCode)) {
+                throw new ProductNotFoundException();
+            }
 
-        if((quantity - quantityPurchased) < 0) {
             throw new InsufficientProductsException();
         }
 
-        product.setQuantity(quantity - quantityPurchased);
+        productCache.put(updatedProduct.get());
+
+        return updatedProduct.get();
+    }
 
-        return updateProduct(product);
+    @Override
+    public BasketPurchase removeProductQuantities(List<PurchaseProductDto> items) {
+        if (items.size() > maxBatchSize) {
+            throw new ProductBatchSizeExceededException("It is only possible to purchase up to " + maxBatchSize + " products at once!");
+        }
+
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        items.forEach(item -> deltas.merge(item.barCode(), -item.quantityPurchased(), Long::sum));
+
+        Set<Long> rejected = transactionTemplate != null
+                ? purchaseInTransaction(deltas)
+                : purchaseWithUndo(deltas);
+        Map<Long, PurchaseLineStatus> statuses = new HashMap<>();
+
+        if (!rejected.isEmpty()) {
+            Set<Long> stored = productRepository.findByBarCodeIn(rejected)
+                    .stream()
+                    .map(Product::getBarCode)
+                    .collect(Collectors.toSet());
+
+            deltas.keySet().forEach(barCode -> statuses.put(barCode, !rejected.contains(barCode)
+                    ? PurchaseLineStatus.ROLLED_BACK
+                    : stored.contains(barCode) ? PurchaseLineStatus.INSUFFICIENT : PurchaseLineStatus.NOT_FOUND));
+        }
+
+        deltas.keySet().forEach(productCache::evict);
+
+        List<PurchaseLine> lines = items.stream()
+                .map(item -> new PurchaseLine(
+                        item.barCode(),
+                        item.quantityPurchased(),
+                        statuses.getOrDefault(item.barCode(), PurchaseLineStatus.PURCHASED)
+                ))
+                .toList();
+
+        return new BasketPurchase(rejected.isEmpty(), lines);
+    }
+
+    // A rejected line rolls the transaction back, so the other lines never take stock at all.
+    private Set<Long> purchaseInTransaction(Map<Long, Long> deltas) {
+        return transactionTemplate.execute(transaction -> {
+            Set<Long> rejected = productRepository.adjustQuantities(deltas);
+
+            if (!rejected.isEmpty()) {
+                transaction.setRollbackOnly();
+            }
+
+            return rejected;
+        });
+    }
+
+    // Without a transaction the lines that went through are briefly taken and then returned.
+    private Set<Long> purchaseWithUndo(Map<Long, Long> deltas) {
+        Set<Long> rejected = productRepository.adjustQuantities(deltas);
+
+        if (!rejected.isEmpty()) {
+            Map<Long, Long> undo = new HashMap<>();
+            deltas.forEach((barCode, delta) -> {
+                if (!rejected.contains(barCode)) {
+                    undo.put(barCode, -delta);
+                }
+            });
+
+            Set<Long> notReturned = productRepository.adjustQuantities(undo);
+
+            if (!notReturned.isEmpty()) {
+                log.error("Basket undo could not return the stock of {}", notReturned.stream()
+                        .map(barCode -> barCode + " (" + undo.get(barCode) + " units)")
+                        .toList());
+            }
+        }
+
+        return rejected;
+    }
+
+    @Override
+    public Product enableStockStriping(Long code, int stripes) {
+        if (stripes < 2 || stripes > maxStockStripes) {
+            throw new InvalidStockStripesException("The stripe count must be between 2 and " + maxStockStripes + "!");
+        }
+
+        return stripedProduct(code, productRepository.enableStriping(code, stripes));
+    }
+
+    @Override
+    public Product disableStockStriping(Long code) {
+        return stripedProduct(code, productRepository.disableStriping(code));
+    }
+
+    @Override
+    public Product rebalanceStockStripes(Long code) {
+        return stripedProduct(code, productRepository.rebalanceStripes(code));
+    }
+
+    private Product stripedProduct(Long code, Optional<Product> product) {
+        if (!product.isPresent()) {
+            throw new ProductNotFoundException();
+        }
+
+        productCache.evict(code);
+
+        return product.get();
+    }
+
+    private Product catalogOf(Product product) {
+        return product.toBuilder()
+                .quantity(null)
+                .stockStripes(null)
+                .updatedAt(null)
+                .build();
+    }
+
+    private String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor) {
+        try {
+            String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!ObjectId.isValid(id)) {
+                throw new InvalidCursorException();
+            }
+
+            return id;
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidCursorException();
+        }
     }
 }
@@ -0,0 +1,285 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Groups concurrent purchases of the same bar code into one conditional decrement of their combined quantity. There
+ * is no flusher thread: the first purchase of a group flushes it on its own thread, at once when no decrement of that
+ * bar code is in flight, otherwise after waiting up to {@code max-delay} for the one in flight, taking along every
+ * purchase that joined in the meantime. A group is also flushed as soon as it holds {@code max-batch} purchases. When
+ * the stock cannot cover the whole group, purchases are served in arrival order as far as the stock goes, still
+ * through conditional decrements, so grouping never sells more than is in stock.
+ */
+@Component
+public class ProductStockLedger {
+    private static final int PARTIAL_ATTEMPTS = 3;
+
+    private static final class Purchase {
+        private final long quantity;
+        private final CompletableFuture<Optional<Product>> result = new CompletableFuture<>();
+
+        private Purchase(long quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    private static final class Group {
+        private final List<Purchase> purchases = new ArrayList<>();
+        private boolean flushed;
+    }
+
+    private final IProductRepository productRepository;
+    private final MongoOperationMetrics mongoOperationMetrics;
+    private final boolean enabled;
+    private final Duration maxDelay;
+    private final int maxBatch;
+    private final Duration maxWait;
+    // A ReentrantLock rather than a monitor, so a purchase waiting on a virtual thread does not pin its carrier.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Group> groups = new HashMap<>();
+    private final Map<Long, CompletableFuture<Void>> inFlight = new HashMap<>();
+    private final DistributionSummary groupSize;
+    private final Counter partialGroups;
+
+    public ProductStockLedger(
+            IProductRepository productRepository,
+            MongoOperationMetrics mongoOperationMetrics,
+            MeterRegistry meterRegistry,
+            @Value("${product.stock.ledger.enabled:true}") boolean enabled,
+            @Value("${product.stock.ledger.max-delay:2ms}") Duration maxDelay,
+            @Value("${product.stock.ledger.max-batch:64}") int maxBatch,
+            @Value("${product.stock.ledger.max-wait:1s}") Duration maxWait
+    ) {
+        this.productRepository = productRepository;
+        this.mongoOperationMetrics = mongoOperationMetrics;
+        this.enabled = enabled;
+        this.maxDelay = maxDelay;
+        this.maxBatch = maxBatch;
+        this.maxWait = maxWait;
+        this.groupSize = DistributionSummary.builder("stock.ledger.group.size")
+                .description("Purchases applied by one combined stock decrement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.partialGroups = Counter.builder("stock.ledger.group.partial")
+                .description("Purchase groups the stock could not cover as a whole")
+                .register(meterRegistry);
+    }
+
+    public Optional<Product> decrement(Long barCode, Long quantity) {
+        if (!enabled) {
+            return productRepository.decrementQuantity(barCode, quantity);
+        }
+
+        Purchase purchase = new Purchase(quantity);
+        Group group;
+        boolean first;
+        boolean full;
+        CompletableFuture<Void> previous;
+
+        lock.lock();
+
+        try {
+            group = groups.computeIfAbsent(barCode, ignored -> new Group());
+            group.purchases.add(purchase);
+            first = group.purchases.size() == 1;
+            full = group.purchases.size() >= maxBatch;
+            previous = inFlight.get(barCode);
+
+            if (full) {
+                groups.remove(barCode, group);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full) {
+            flush(barCode, group);
+        } else if (first) {
+            // A purchase on its own goes straight through; behind a decrement in flight it waits for that one and
+            // collects the purchases arriving meanwhile.
+            if (previous != null) {
+                awaitQuietly(previous, maxDelay);
+            }
+
+            flush(barCode, group);
+        }
+
+        return result(barCode, group, purchase);
+    }
+
+    private Optional<Product> result(Long barCode, Group group, Purchase purchase) {
+        try {
+            return purchase.result.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            // Only a group whose first purchase never flushed it times out; a purchase still waiting in it is taken
+            // out and decremented on its own. Once a flush has it, its decrement is already running and is awaited.
+            if (withdraw(barCode, group, purchase)) {
+                return productRepository.decrementQuantity(barCode, purchase.quantity);
+            }
+
+            return unwrap(purchase.result::join);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+
+            if (withdraw(barCode, group, purchase)) {
+                throw new IllegalStateException("Interrupted while waiting for a stock decrement", exception);
+            }
+
+            return unwrap(purchase.result::join);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    private boolean withdraw(Long barCode, Group group, Purchase purchase) {
+        lock.lock();
+
+        try {
+            if (group.flushed) {
+                return false;
+            }
+
+            group.purchases.remove(purchase);
+
+            if (group.purchases.isEmpty()) {
+                groups.remove(barCode, group);
+            }
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(Long barCode, Group group) {
+        List<Purchase> purchases;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        lock.lock();
+
+        try {
+            if (group.flushed) {
+                return;
+            }
+
+            group.flushed = true;
+            groups.remove(barCode, group);
+            purchases = List.copyOf(group.purchases);
+            inFlight.put(barCode, done);
+        } finally {
+            lock.unlock();
+        }
+
+        try (MongoOperationMetrics.Scope scope = mongoOperationMetrics.open("stock ledger")) {
+            apply(barCode, purchases);
+        } catch (RuntimeException exception) {
+            purchases.forEach(purchase -> purchase.result.completeExceptionally(exception));
+        } finally {
+            lock.lock();
+
+            try {
+                inFlight.remove(barCode, done);
+            } finally {
+                lock.unlock();
+            }
+
+            done.complete(null);
+        }
+    }
+
+    private void awaitQuietly(CompletableFuture<Void> future, Duration timeout) {
+        try {
+            future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException exception) {
+            // Flushing now only means a smaller group.
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Optional<Product> unwrap(Supplier<Optional<Product>> result) {
+        try {
+            return result.get();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw exception;
+        }
+    }
+
+    private void apply(Long barCode, List<Purchase> purchases) {
+        groupSize.record(purchases.size());
+
+        long total = purchases.stream().mapToLong(purchase -> purchase.quantity).sum();
+        Optional<Product> updated = productRepository.decrementQuantity(barCode, total);
+
+        if (updated.isPresent()) {
+            purchases.forEach(purchase -> purchase.result.complete(updated));
+            return;
+        }
+
+        partialGroups.increment();
+
+        for (int attempt = 0; attempt < PARTIAL_ATTEMPTS; attempt++) {
+            Optional<Product> product = productRepository.findByBarCode(barCode).map(productRepository::withStock);
+
+            if (product.isEmpty()) {
+                purchases.forEach(purchase -> purchase.result.complete(Optional.empty()));
+                return;
+            }
+
+            long available = product.get().getQuantity();
+            List<Purchase> served = new ArrayList<>();
+            long servedQuantity = 0;
+
+            for (Purchase purchase : purchases) {
+                if (servedQuantity + purchase.quantity <= available) {
+                    served.add(purchase);
+                    servedQuantity += purchase.quantity;
+                }
+            }
+
+            if (served.isEmpty()) {
+                purchases.forEach(purchase -> purchase.result.complete(Optional.empty()));
+                return;
+            }
+
+            // The stock may change between the read and the decrement, in which case the read is repeated.
+            Optional<Product> partial = productRepository.decrementQuantity(barCode, servedQuantity);
+
+            if (partial.isPresent()) {
+                purchases.forEach(purchase -> purchase.result.complete(served.contains(purchase) ? partial : Optional.empty()));
+                return;
+            }
+        }
+
+        purchases.forEach(purchase -> purchase.result.complete(productRepository.decrementQuantity(barCode, purchase.quantity)));
+    }
+}
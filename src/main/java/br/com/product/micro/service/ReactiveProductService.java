@@ -0,0 +1,86 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductLookup;
+import br.com.product.micro.exception.ProductBatchSizeExceededException;
+import br.com.product.micro.exception.ProductNotFoundException;
+import br.com.product.micro.repository.IReactiveProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@ConditionalOnProperty(name = "product.reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveProductService implements IReactiveProductService {
+    private final IReactiveProductRepository productRepository;
+    private final ProductCache productCache;
+    private final int maxBatchSize;
+    private final int listBatchSize;
+
+    public ReactiveProductService(
+            IReactiveProductRepository productRepository,
+            ProductCache productCache,
+            @Value("${product.data.max-batch-size:500}") int maxBatchSize,
+            @Value("${product.reactive.list-batch-size:50}") int listBatchSize
+    ) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.maxBatchSize = maxBatchSize;
+        this.listBatchSize = listBatchSize;
+    }
+
+    @Override
+    public Mono<Product> getProduct(Long code) {
+        return Mono.justOrEmpty(productCache.getIfPresent(code))
+                .switchIfEmpty(productRepository.findByBarCode(code)
+                        .flatMap(product -> productRepository.withStock(List.of(product)).next())
+                        .doOnNext(productCache::put))
+                .switchIfEmpty(Mono.error(ProductNotFoundException::new));
+    }
+
+    @Override
+    public Mono<ProductLookup> getProducts(List<Long> codes) {
+        if (codes.size() > maxBatchSize) {
+            return Mono.error(new ProductBatchSizeExceededException("It is only possible to request up to " + maxBatchSize + " products at once!"));
+        }
+
+        Map<Long, Product> cachedProducts = new HashMap<>();
+        Set<Long> missingCodes = new LinkedHashSet<>();
+
+        codes.forEach(code -> productCache.getIfPresent(code)
+                .ifPresentOrElse(product -> cachedProducts.put(code, product), () -> missingCodes.add(code)));
+
+        if (missingCodes.isEmpty()) {
+            return Mono.just(ProductLookup.of(codes, cachedProducts));
+        }
+
+        return productRepository.findByBarCodeIn(missingCodes)
+                .collectList()
+                .flatMapMany(productRepository::withStock)
+                .doOnNext(productCache::put)
+                .collect(() -> new HashMap<>(cachedProducts), (products, product) -> products.putIfAbsent(product.getBarCode(), product))
+                .map(products -> ProductLookup.of(codes, products));
+    }
+
+    @Override
+    public Flux<Product> listProduct(int page, int size) {
+        if (size < 1 || size > maxBatchSize) {
+            return Flux.error(new ProductBatchSizeExceededException("The page size must be between 1 and " + maxBatchSize + "!"));
+        }
+
+        // Stock is read per buffer, so the first products are written before the rest of the page arrives.
+        return productRepository.findAllBy(PageRequest.of(page, size))
+                .buffer(listBatchSize)
+                .concatMap(productRepository::withStock);
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ReservationLine;
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.exception.SaleReservationNotFoundException;
+import br.com.product.micro.migration.ReservationMigration;
+import br.com.product.micro.repository.IDeliveredArchiveRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+public class SaleReservationService implements ISaleReservationService {
+    private final ISaleReservationRepository saleReservationRepository;
+    private final IDeliveredArchiveRepository deliveredArchiveRepository;
+    private final IProductService productService;
+    private final ReservationMigration reservationMigration;
+    private final int maxBatchSize;
+
+    public SaleReservationService(
+            ISaleReservationRepository saleReservationRepository,
+            IDeliveredArchiveRepository deliveredArchiveRepository,
+            IProductService productService,
+            ReservationMigration reservationMigration,
+            @Value("${product.data.max-batch-size:500}") int maxBatchSize
+    ) {
+        this.saleReservationRepository = saleReservationRepository;
+        this.deliveredArchiveRepository = deliveredArchiveRepository;
+        this.productService = productService;
+        this.reservationMigration = reservationMigration;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public SaleReservation getReservation(String saleId) {
+        reservationMigration.migrateSale(saleId);
+
+        Optional<SaleReservation> reservation = saleReservationRepository.findBySaleId(saleId)
+                .or(() -> deliveredArchiveRepository.findArchived(saleId));
+
+        if (!reservation.isPresent()) {
+            throw new SaleReservationNotFoundException();
+        }
+
+        return reservation.get();
+    }
+
+    @Override
+    public List<ReservationLine> resolveItems(SaleReservation reservation) {
+        List<Long> barCodes = reservation.getItems().stream()
+                .map(Item::getBarCode)
+                .distinct()
+                .toList();
+
+        Map<Long, Product> products = new HashMap<>();
+
+        // A sale can hold more products than a single lookup accepts.
+        for (int from = 0; from < barCodes.size(); from += maxBatchSize) {
+            List<Long> chunk = barCodes.subList(from, Math.min(from + maxBatchSize, barCodes.size()));
+
+            productService.getProducts(chunk)
+                    .products()
+                    .forEach(product -> products.put(product.getBarCode(), product));
+        }
+
+        return reservation.getItems().stream()
+                .map(item -> new ReservationLine(item, products.get(item.getBarCode())))
+                .toList();
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.product.micro.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessedEventFilterTests {
+    @Test
+    void neverForgetsAKeyOfTheCurrentGeneration() {
+        ProcessedEventFilter processedEventFilter = new ProcessedEventFilter(1_000, 0.01);
+        List<String> keys = keys("sale", 1_000);
+
+        keys.forEach(processedEventFilter::put);
+
+        assertThat(keys).allMatch(processedEventFilter::mightContain);
+    }
+
+    @Test
+    void keepsThePreviousGenerationAndDropsTheOneBefore() {
+        ProcessedEventFilter processedEventFilter = new ProcessedEventFilter(100, 0.01);
+        List<String> first = keys("first", 100);
+        List<String> second = keys("second", 50);
+        List<String> third = keys("third", 100);
+
+        first.forEach(processedEventFilter::put);
+        second.forEach(processedEventFilter::put);
+
+        // The first generation rolled over when it filled up, and is still consulted as the previous one.
+        assertThat(first).allMatch(processedEventFilter::mightContain);
+        assertThat(second).allMatch(processedEventFilter::mightContain);
+
+        // Filling the second generation rolls it over in turn.
+        third.forEach(processedEventFilter::put);
+
+        assertThat(second).allMatch(processedEventFilter::mightContain);
+        assertThat(third).allMatch(processedEventFilter::mightContain);
+        // Only false positives of the two live generations remain of the first one.
+        assertThat(first.stream().filter(processedEventFilter::mightContain).count()).isLessThan(10);
+    }
+
+    private List<String> keys(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> prefix + "-" + index + ":CREATED")
+                .toList();
+    }
+}
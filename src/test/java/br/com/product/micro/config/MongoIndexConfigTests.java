@@ -0,0 +1,111 @@
+package br.com.product.micro.config;
+
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.MongoVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoIndexConfigTests {
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // The driver refuses servers older than 4.2, which is more than the in-memory server reports by default.
+        mongoServer = new MongoServer(new MemoryBackend().version(new MongoVersion() {
+            @Override
+            public List<Integer> getVersionArray() {
+                return List.of(4, 2, 0);
+            }
+
+            @Override
+            public int getWireVersion() {
+                return 8;
+            }
+        }));
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "indexes");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void storesTwoSalesContainingTheSameProduct() {
+        verifyIndexes(Product.class, Sale.class);
+
+        Product product = Product.builder().barCode(7891234567890L).name("Shared product").build();
+        mongoTemplate.insert(new Sale(null, "sale-1", List.of(product)));
+        mongoTemplate.insert(new Sale(null, "sale-2", List.of(product)));
+
+        assertThat(mongoTemplate.findAll(Sale.class)).hasSize(2);
+        assertThat(indexKeys(Sale.class)).contains("saleId").doesNotContain("products.barCode");
+    }
+
+    @Test
+    void dropsAUniqueIndexLeftOnAnEmbeddedField() {
+        mongoTemplate.indexOps(SaleReservation.class).createIndex(new Index("products.barCode", Sort.Direction.ASC).unique());
+
+        verifyIndexes(SaleReservation.class);
+
+        mongoTemplate.insert(reservation("sale-1"));
+        mongoTemplate.insert(reservation("sale-2"));
+
+        assertThat(mongoTemplate.findAll(SaleReservation.class)).hasSize(2);
+        assertThat(indexKeys(SaleReservation.class)).doesNotContain("products.barCode");
+    }
+
+    private void verifyIndexes(Class<?>... entities) {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        Arrays.stream(entities).forEach(mappingContext::getRequiredPersistentEntity);
+
+        new MongoIndexConfig(mongoTemplate, mappingContext, MongoIndexConfig.IndexVerificationMode.FAIL).afterSingletonsInstantiated();
+    }
+
+    private List<String> indexKeys(Class<?> entity) {
+        return mongoTemplate.indexOps(entity).getIndexInfo().stream()
+                .map(IndexInfo::getIndexFields)
+                .flatMap(List::stream)
+                .map(IndexField::getKey)
+                .toList();
+    }
+
+    private SaleReservation reservation(String saleId) {
+        return SaleReservation.builder()
+                .saleId(saleId)
+                .status(ReservationStatus.RESERVED)
+                .items(List.of(new Item(null, 7891234567890L, 10.0, 1L)))
+                .build();
+    }
+
+    @org.springframework.data.mongodb.core.mapping.Document(collection = "legacy_sales")
+    record Sale(@Id String id, @Indexed(unique = true) String saleId, List<Product> products) {
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.product.micro.event.consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedExecutorTests {
+    private final KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor(4, 64, false);
+
+    @AfterEach
+    void tearDown() {
+        keyOrderedExecutor.shutdown();
+    }
+
+    @Test
+    void runsTheTasksOfAKeyInSubmissionOrder() throws Exception {
+        List<String> keys = List.of("sale-1", "sale-2", "sale-3");
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int sequence = 0; sequence < 50; sequence++) {
+            for (String key : keys) {
+                int value = sequence;
+                futures.add(keyOrderedExecutor.submit(key, () -> {
+                    if (key.equals("sale-1")) {
+                        seen.add(value);
+                    }
+                }));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(seen).hasSize(50).isSorted();
+    }
+
+    @Test
+    void keepsTheOrderOfAKeyAfterAFailedTask() throws Exception {
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> failed = keyOrderedExecutor.submit("sale-1", () -> {
+            seen.add("first");
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<Void> next = keyOrderedExecutor.submit("sale-1", () -> seen.add("second"));
+
+        next.get(10, TimeUnit.SECONDS);
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(seen).containsExactly("first", "second");
+    }
+
+    @Test
+    void doesNotHoldOtherKeysBehindASlowOne() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+
+        CompletableFuture<Void> slow = keyOrderedExecutor.submit("sale-1", () -> {
+            slowStarted.countDown();
+            await(releaseSlow);
+        });
+        slowStarted.await(10, TimeUnit.SECONDS);
+
+        keyOrderedExecutor.submit("sale-2", () -> { }).get(10, TimeUnit.SECONDS);
+
+        assertThat(slow).isNotDone();
+        releaseSlow.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
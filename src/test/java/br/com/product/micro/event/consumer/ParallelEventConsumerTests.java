@@ -0,0 +1,103 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ParallelEventConsumerTests {
+    private final SaleEventDto event = new SaleEventDto("sale-1", Status.CREATED, List.of());
+    private final ConsumerRecord<String, SaleEventDto> record = new ConsumerRecord<>("sale", 0, 0L, "sale-1", event);
+
+    private ProductConsumer productConsumer;
+    private KeyOrderedExecutor keyOrderedExecutor;
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private Acknowledgment acknowledgment;
+    private ParallelEventConsumer parallelEventConsumer;
+
+    @BeforeEach
+    void setUp() {
+        productConsumer = mock(ProductConsumer.class);
+        keyOrderedExecutor = new KeyOrderedExecutor(2, 16, false);
+        deadLetterPublishingRecoverer = mock(DeadLetterPublishingRecoverer.class);
+        acknowledgment = mock(Acknowledgment.class);
+
+        Duration delay = Duration.ofMillis(1);
+        parallelEventConsumer = new ParallelEventConsumer(
+                productConsumer,
+                keyOrderedExecutor,
+                deadLetterPublishingRecoverer,
+                3, delay, 2.0, delay,
+                3, delay, 2.0, delay
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyOrderedExecutor.shutdown();
+    }
+
+    @Test
+    void retriesATransientFailureBeforeAcknowledging() throws Exception {
+        doThrow(new IllegalStateException("timeout"))
+                .doNothing()
+                .when(productConsumer).saleListener(event);
+
+        parallelEventConsumer.saleParallelListener(record, acknowledgment);
+
+        verify(acknowledgment, timeout(5_000)).acknowledge();
+        verify(productConsumer, times(2)).saleListener(event);
+        verify(deadLetterPublishingRecoverer, never()).accept(any(), any());
+    }
+
+    @Test
+    void deadLettersOnceTheAttemptsRunOut() throws Exception {
+        doThrow(new IllegalStateException("timeout")).when(productConsumer).saleListener(event);
+
+        parallelEventConsumer.saleParallelListener(record, acknowledgment);
+
+        verify(acknowledgment, timeout(5_000)).acknowledge();
+        verify(productConsumer, times(3)).saleListener(event);
+        verify(deadLetterPublishingRecoverer).accept(eq(record), isA(IllegalStateException.class));
+    }
+
+    @Test
+    void deadLettersShortStockWithoutRetrying() throws Exception {
+        doThrow(new InsufficientProductsException("short")).when(productConsumer).saleListener(event);
+
+        parallelEventConsumer.saleParallelListener(record, acknowledgment);
+
+        verify(acknowledgment, timeout(5_000)).acknowledge();
+        verify(productConsumer, times(1)).saleListener(event);
+        verify(deadLetterPublishingRecoverer).accept(eq(record), isA(InsufficientProductsException.class));
+    }
+
+    @Test
+    void leavesTheRecordUnacknowledgedWhenTheDeadLetterCannotBePublished() throws Exception {
+        doThrow(new InsufficientProductsException("short")).when(productConsumer).saleListener(event);
+        doThrow(new IllegalStateException("broker down")).when(deadLetterPublishingRecoverer).accept(any(), any());
+
+        parallelEventConsumer.saleParallelListener(record, acknowledgment);
+
+        verify(deadLetterPublishingRecoverer, timeout(5_000)).accept(eq(record), any());
+        verify(acknowledgment, never()).acknowledge();
+    }
+}
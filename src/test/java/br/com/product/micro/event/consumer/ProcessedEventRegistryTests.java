@@ -0,0 +1,91 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.cache.ProcessedEventFilter;
+import br.com.product.micro.domain.ProcessedEvent;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.memory.InMemoryProcessedEventStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProcessedEventRegistryTests {
+    private InMemoryProcessedEventStore processedEventStore;
+    private MeterRegistry meterRegistry;
+    private ProcessedEventRegistry processedEventRegistry;
+
+    @BeforeEach
+    void setUp() {
+        processedEventStore = new InMemoryProcessedEventStore();
+        meterRegistry = new SimpleMeterRegistry();
+        processedEventRegistry = registry();
+    }
+
+    @Test
+    void appliesARedeliveredEventOnce() {
+        AtomicInteger applied = new AtomicInteger();
+
+        assertThat(processedEventRegistry.runOnce("sale-1", Status.CREATED, applied::incrementAndGet)).isTrue();
+        assertThat(processedEventRegistry.runOnce("sale-1", Status.CREATED, applied::incrementAndGet)).isFalse();
+        assertThat(processedEventRegistry.runOnce("sale-1", Status.CANCELED, applied::incrementAndGet)).isTrue();
+
+        assertThat(applied).hasValue(2);
+        assertThat(meterRegistry.counter("kafka.events.duplicate", "status", "CREATED").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void skipsAnEventRecordedBeforeARestart() {
+        processedEventRegistry.runOnce("sale-1", Status.CREATED, () -> { });
+
+        // A new instance starts with an empty filter, so the marker alone has to catch the redelivery.
+        AtomicInteger applied = new AtomicInteger();
+        assertThat(registry().runOnce("sale-1", Status.CREATED, applied::incrementAndGet)).isFalse();
+
+        assertThat(applied).hasValue(0);
+    }
+
+    @Test
+    void appliesAFailedEventAgainOnRedelivery() {
+        assertThatThrownBy(() -> processedEventRegistry.runOnce("sale-1", Status.CREATED, () -> {
+            throw new IllegalStateException("timeout");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(processedEventStore.existsById(ProcessedEvent.key("sale-1", Status.CREATED))).isFalse();
+
+        AtomicInteger applied = new AtomicInteger();
+        assertThat(processedEventRegistry.runOnce("sale-1", Status.CREATED, applied::incrementAndGet)).isTrue();
+        assertThat(applied).hasValue(1);
+    }
+
+    @Test
+    void dropsProcessedAndRepeatedEventsFromABatch() {
+        processedEventRegistry.runOnce("sale-1", Status.CREATED, () -> { });
+
+        List<String> events = List.of("sale-1", "sale-2", "sale-2", "sale-3");
+        List<String> applied = new ArrayList<>();
+
+        processedEventRegistry.runOnceAll(events, saleId -> saleId, saleId -> Status.CREATED, applied::addAll);
+        processedEventRegistry.runOnceAll(events, saleId -> saleId, saleId -> Status.CREATED, applied::addAll);
+
+        assertThat(applied).containsExactly("sale-2", "sale-3");
+    }
+
+    private ProcessedEventRegistry registry() {
+        return new ProcessedEventRegistry(
+                InMemoryRepositories.processedEvents(processedEventStore),
+                new ProcessedEventFilter(1_000, 0.01),
+                Optional.empty(),
+                meterRegistry,
+                true
+        );
+    }
+}
@@ -0,0 +1,147 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.cache.ProcessedEventFilter;
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.ProcessedEvent;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.event.dto.ItemEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import br.com.product.micro.memory.InMemoryProcessedEventStore;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.scheduler.ReservationExpirySweeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ProductConsumerTests {
+    private InMemoryProductStore productStore;
+    private InMemoryReservationStore reservationStore;
+    private InMemoryProcessedEventStore processedEventStore;
+    private IProductRepository productRepository;
+    private ProductCache productCache;
+    private ProductConsumer productConsumer;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new InMemoryProductStore();
+        reservationStore = new InMemoryReservationStore();
+        processedEventStore = new InMemoryProcessedEventStore();
+
+        productStore.insert(Product.builder().barCode(1L).quantity(5L).value(10.0).build());
+        productStore.insert(Product.builder().barCode(2L).quantity(1L).value(20.0).build());
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        productRepository = mock(IProductRepository.class, delegatesTo(InMemoryRepositories.products(productStore)));
+        productCache = new ProductCache(meterRegistry, false, 10, Duration.ofSeconds(5));
+        ProcessedEventRegistry processedEventRegistry = new ProcessedEventRegistry(
+                InMemoryRepositories.processedEvents(processedEventStore),
+                new ProcessedEventFilter(1_000, 0.01),
+                Optional.empty(),
+                meterRegistry,
+                true
+        );
+
+        productConsumer = new ProductConsumer(
+                productRepository,
+                InMemoryRepositories.reservations(reservationStore),
+                productCache,
+                new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                processedEventRegistry,
+                Duration.ofMinutes(30)
+        );
+    }
+
+    @Test
+    void restocksACanceledSaleAndRemovesItsReservation() {
+        productConsumer.saleListener(sale("sale-1", Status.CREATED, new ItemEventDto(null, 1L, 10.0, 3L)));
+        productConsumer.saleListener(sale("sale-1", Status.CANCELED));
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+
+        // A redelivered cancel finds nothing left to restock.
+        productConsumer.saleListener(sale("sale-1", Status.CANCELED));
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+    }
+
+    @Test
+    void leavesACancelWhoseRestockFailedToTheExpirySweep() {
+        productConsumer.saleListener(sale("sale-1", Status.CREATED, new ItemEventDto(null, 1L, 10.0, 3L)));
+        doThrow(new DataAccessResourceFailureException("MongoDB unavailable"))
+                .doAnswer(delegatesTo(InMemoryRepositories.products(productStore)))
+                .when(productRepository).adjustQuantities(anyMap());
+
+        assertThatThrownBy(() -> productConsumer.saleListener(sale("sale-1", Status.CANCELED)))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // The replay finds the claim already taken, so the stock only comes back once the claim goes stale.
+        productConsumer.saleListener(sale("sale-1", Status.CANCELED));
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(2L);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new ReservationExpirySweeper(
+                InMemoryRepositories.reservations(reservationStore),
+                productRepository,
+                productCache,
+                Optional.empty(),
+                meterRegistry,
+                500,
+                20,
+                Duration.ZERO
+        ).sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+    }
+
+    @Test
+    void returnsTheLinesAlreadyTakenWhenALaterLineFails() {
+        SaleEventDto created = sale(
+                "sale-1",
+                Status.CREATED,
+                new ItemEventDto(null, 1L, 10.0, 3L),
+                new ItemEventDto(null, 2L, 20.0, 2L)
+        );
+
+        assertThatThrownBy(() -> productConsumer.saleListener(created)).isInstanceOf(InsufficientProductsException.class);
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(productStore.findByBarCode(2L)).get().extracting(Product::getQuantity).isEqualTo(1L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+        assertThat(processedEventStore.existsById(ProcessedEvent.key("sale-1", Status.CREATED))).isFalse();
+    }
+
+    @Test
+    void appliesARedeliveredSaleOnce() {
+        SaleEventDto created = sale("sale-1", Status.CREATED, new ItemEventDto(null, 1L, 10.0, 3L));
+
+        productConsumer.saleListener(created);
+        productConsumer.saleListener(created);
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(2L);
+    }
+
+    private SaleEventDto sale(String saleId, Status status, ItemEventDto... items) {
+        return new SaleEventDto(saleId, status, List.of(items));
+    }
+}
@@ -0,0 +1,223 @@
+package br.com.product.micro.event.consumer;
+
+import br.com.product.micro.cache.ProcessedEventFilter;
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.ProcessedEvent;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.Status;
+import br.com.product.micro.event.dto.ItemEventDto;
+import br.com.product.micro.event.dto.SaleEventDto;
+import br.com.product.micro.exception.InsufficientProductsException;
+import br.com.product.micro.exception.ProductNotFoundException;
+import br.com.product.micro.memory.InMemoryProcessedEventStore;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SaleBatchConsumerTests {
+    private InMemoryProductStore productStore;
+    private InMemoryReservationStore reservationStore;
+    private InMemoryProcessedEventStore processedEventStore;
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private ProductCache productCache;
+    private MongoOperationMetrics mongoOperationMetrics;
+    private SaleBatchConsumer saleBatchConsumer;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new InMemoryProductStore();
+        reservationStore = new InMemoryReservationStore();
+        processedEventStore = new InMemoryProcessedEventStore();
+        deadLetterPublishingRecoverer = mock(DeadLetterPublishingRecoverer.class);
+
+        productStore.insert(Product.builder().barCode(1L).quantity(5L).value(10.0).build());
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        productCache = new ProductCache(meterRegistry, false, 10, Duration.ofSeconds(5));
+        mongoOperationMetrics = new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        ProcessedEventRegistry processedEventRegistry = new ProcessedEventRegistry(
+                InMemoryRepositories.processedEvents(processedEventStore),
+                new ProcessedEventFilter(1_000, 0.01),
+                Optional.empty(),
+                meterRegistry,
+                true
+        );
+        ProductConsumer productConsumer = new ProductConsumer(
+                InMemoryRepositories.products(productStore),
+                InMemoryRepositories.reservations(reservationStore),
+                productCache,
+                mongoOperationMetrics,
+                processedEventRegistry,
+                Duration.ofMinutes(30)
+        );
+
+        saleBatchConsumer = new SaleBatchConsumer(
+                InMemoryRepositories.products(productStore),
+                InMemoryRepositories.reservations(reservationStore),
+                productConsumer,
+                productCache,
+                mongoOperationMetrics,
+                processedEventRegistry,
+                deadLetterPublishingRecoverer,
+                Duration.ofMinutes(30)
+        );
+    }
+
+    @Test
+    void deadLettersFailedSalesAndAppliesTheRestOfTheBatch() {
+        ConsumerRecord<String, SaleEventDto> accepted = record(0, created("sale-1", 1L, 3L));
+        ConsumerRecord<String, SaleEventDto> shortOfStock = record(1, created("sale-2", 1L, 5L));
+        ConsumerRecord<String, SaleEventDto> unknownProduct = record(2, created("sale-3", 2L, 1L));
+
+        saleBatchConsumer.saleBatchListener(List.of(accepted, shortOfStock, unknownProduct));
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(2L);
+        assertThat(reservationStore.findBySaleId("sale-1")).get()
+                .extracting(reservation -> reservation.getStatus())
+                .isEqualTo(ReservationStatus.RESERVED);
+        assertThat(reservationStore.findBySaleId("sale-2")).isEmpty();
+        assertThat(reservationStore.findBySaleId("sale-3")).isEmpty();
+
+        verify(deadLetterPublishingRecoverer).accept(eq(shortOfStock), isA(InsufficientProductsException.class));
+        verify(deadLetterPublishingRecoverer).accept(eq(unknownProduct), isA(ProductNotFoundException.class));
+        verify(deadLetterPublishingRecoverer, never()).accept(eq(accepted), any());
+
+        // Only the applied sale keeps its marker, so the dead-lettered ones can be replayed.
+        assertThat(processedEventStore.existsById(ProcessedEvent.key("sale-1", Status.CREATED))).isTrue();
+        assertThat(processedEventStore.existsById(ProcessedEvent.key("sale-2", Status.CREATED))).isFalse();
+        assertThat(processedEventStore.existsById(ProcessedEvent.key("sale-3", Status.CREATED))).isFalse();
+    }
+
+    @Test
+    void pointsTheErrorHandlerAtTheFailingRecord() {
+        ConsumerRecord<String, SaleEventDto> accepted = record(0, created("sale-1", 1L, 1L));
+        ConsumerRecord<String, SaleEventDto> undelivered = record(1, new SaleEventDto("sale-9", Status.DELIVERED, List.of()));
+
+        assertThatThrownBy(() -> saleBatchConsumer.saleBatchListener(List.of(accepted, undelivered)))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, exception ->
+                        assertThat(exception.getRecord()).isSameAs(undelivered));
+
+        // The sale before the failing record is applied and stays applied when the rest is redelivered.
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(4L);
+
+        saleBatchConsumer.saleBatchListener(List.of(accepted));
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(4L);
+    }
+
+    @Test
+    void deadLettersASaleOnceWhenTheStockChangesRunAgain() {
+        // A transaction that hit a duplicate key runs the whole callback a second time.
+        ProcessedEventRegistry processedEventRegistry = mock(ProcessedEventRegistry.class);
+        doAnswer(invocation -> {
+            List<ConsumerRecord<String, SaleEventDto>> events = invocation.getArgument(0);
+            Consumer<List<ConsumerRecord<String, SaleEventDto>>> change = invocation.getArgument(3);
+            change.accept(events);
+            change.accept(events);
+            return null;
+        }).when(processedEventRegistry).runOnceAll(anyList(), any(), any(), any());
+
+        ConsumerRecord<String, SaleEventDto> shortOfStock = record(0, created("sale-1", 1L, 9L));
+        consumerWith(processedEventRegistry).saleBatchListener(List.of(shortOfStock));
+
+        verify(deadLetterPublishingRecoverer, times(1)).accept(eq(shortOfStock), isA(InsufficientProductsException.class));
+    }
+
+    @Test
+    void deadLettersNothingWhenTheStockChangesRollBack() {
+        ProcessedEventRegistry processedEventRegistry = mock(ProcessedEventRegistry.class);
+        doAnswer(invocation -> {
+            Consumer<List<ConsumerRecord<String, SaleEventDto>>> change = invocation.getArgument(3);
+            change.accept(invocation.getArgument(0));
+            throw new DataAccessResourceFailureException("Commit failed");
+        }).when(processedEventRegistry).runOnceAll(anyList(), any(), any(), any());
+
+        ConsumerRecord<String, SaleEventDto> shortOfStock = record(0, created("sale-1", 1L, 9L));
+
+        assertThatThrownBy(() -> consumerWith(processedEventRegistry).saleBatchListener(List.of(shortOfStock)))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verify(deadLetterPublishingRecoverer, never()).accept(any(), any());
+    }
+
+    @Test
+    void appliesTheRecordsBeforeAnUnreadableOneAndPointsAtIt() {
+        ConsumerRecord<String, SaleEventDto> accepted = record(0, created("sale-1", 1L, 1L));
+        ConsumerRecord<String, SaleEventDto> unreadable = new ConsumerRecord<>("sale", 0, 1, "sale-2", null);
+        SerializationUtils.deserializationException(
+                unreadable.headers(),
+                "{not json".getBytes(StandardCharsets.UTF_8),
+                new IllegalArgumentException("Unexpected end of input"),
+                false
+        );
+
+        assertThatThrownBy(() -> saleBatchConsumer.saleBatchListener(List.of(accepted, unreadable, record(2, created("sale-3", 1L, 1L)))))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, exception -> {
+                    assertThat(exception.getRecord()).isSameAs(unreadable);
+                    assertThat(exception.getCause()).isInstanceOf(DeserializationException.class);
+                });
+
+        // Only the sale before the unreadable record is applied; the one after it is redelivered.
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(4L);
+        assertThat(reservationStore.findBySaleId("sale-3")).isEmpty();
+    }
+
+    @Test
+    void restocksCanceledSalesAndRemovesTheirReservations() {
+        saleBatchConsumer.saleBatchListener(List.of(record(0, created("sale-1", 1L, 3L))));
+        saleBatchConsumer.saleBatchListener(List.of(record(1, new SaleEventDto("sale-1", Status.CANCELED, List.of()))));
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+    }
+
+    private SaleBatchConsumer consumerWith(ProcessedEventRegistry processedEventRegistry) {
+        return new SaleBatchConsumer(
+                InMemoryRepositories.products(productStore),
+                InMemoryRepositories.reservations(reservationStore),
+                mock(ProductConsumer.class),
+                productCache,
+                mongoOperationMetrics,
+                processedEventRegistry,
+                deadLetterPublishingRecoverer,
+                Duration.ofMinutes(30)
+        );
+    }
+
+    private SaleEventDto created(String saleId, Long barCode, Long quantity) {
+        return new SaleEventDto(saleId, Status.CREATED, List.of(new ItemEventDto(null, barCode, 10.0, quantity)));
+    }
+
+    private ConsumerRecord<String, SaleEventDto> record(long offset, SaleEventDto event) {
+        return new ConsumerRecord<>("sale", 0, offset, event.id(), event);
+    }
+}
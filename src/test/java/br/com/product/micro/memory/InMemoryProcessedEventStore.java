@@ -0,0 +1,80 @@
+package br.com.product.micro.memory;
+
+import br.com.product.micro.domain.ProcessedEvent;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processed event collection stand-in keyed by the saleId and status marker id. Markers never expire.
+ */
+public class InMemoryProcessedEventStore {
+    private final Map<String, ProcessedEvent> byId = new ConcurrentHashMap<>();
+
+    public void clear() {
+        byId.clear();
+    }
+
+    public ProcessedEvent insert(ProcessedEvent event) {
+        if (byId.putIfAbsent(event.getId(), event) != null) {
+            throw new DuplicateKeyException("Duplicate processed event " + event.getId());
+        }
+
+        return event;
+    }
+
+    public List<ProcessedEvent> insert(Iterable<ProcessedEvent> events) {
+        List<ProcessedEvent> inserted = new ArrayList<>();
+        events.forEach(event -> inserted.add(insert(event)));
+
+        return inserted;
+    }
+
+    public Set<String> insertNew(List<ProcessedEvent> events) {
+        Set<String> duplicates = new HashSet<>();
+
+        events.forEach(event -> {
+            if (byId.putIfAbsent(event.getId(), event) != null) {
+                duplicates.add(event.getId());
+            }
+        });
+
+        return duplicates;
+    }
+
+    public boolean existsById(String id) {
+        return byId.containsKey(id);
+    }
+
+    public Optional<ProcessedEvent> findById(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public List<ProcessedEvent> findAllById(Iterable<String> ids) {
+        List<ProcessedEvent> found = new ArrayList<>();
+
+        ids.forEach(id -> {
+            ProcessedEvent event = byId.get(id);
+
+            if (event != null) {
+                found.add(event);
+            }
+        });
+
+        return found;
+    }
+
+    public void deleteById(String id) {
+        byId.remove(id);
+    }
+
+    public void deleteAllById(Iterable<String> ids) {
+        ids.forEach(byId::remove);
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.product.micro.memory;
+
+import br.com.product.micro.domain.Product;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Product collection stand-in. Reads hand out copies, as a driver round trip would, so allocation figures
+ * stay comparable; the stock updates keep the same conditional semantics as {@code IProductStockRepositoryImpl}.
+ */
+public class InMemoryProductStore {
+    private final Map<Long, Product> byBarCode = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Product> byId = new ConcurrentSkipListMap<>();
+
+    public void clear() {
+        byBarCode.clear();
+        byId.clear();
+    }
+
+    public Product insert(Product product) {
+        Product stored = product.toBuilder()
+                .id(product.getId() == null ? ObjectId.get().toHexString() : product.getId())
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        if (byBarCode.putIfAbsent(stored.getBarCode(), stored) != null) {
+            throw new DuplicateKeyException("Duplicate barCode " + stored.getBarCode());
+        }
+
+        byId.put(stored.getId(), stored);
+
+        return copy(stored);
+    }
+
+    public Set<Integer> insertNew(List<Product> products) {
+        Set<Integer> duplicates = new HashSet<>();
+
+        for (int index = 0; index < products.size(); index++) {
+            try {
+                insert(products.get(index));
+            } catch (DuplicateKeyException exception) {
+                duplicates.add(index);
+            }
+        }
+
+        return duplicates;
+    }
+
+    public Product save(Product product) {
+        Product stored = product.toBuilder()
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        byBarCode.put(stored.getBarCode(), stored);
+        byId.put(stored.getId(), stored);
+
+        return copy(stored);
+    }
+
+    public void deleteById(String id) {
+        Product removed = byId.remove(id);
+
+        if (removed != null) {
+            byBarCode.remove(removed.getBarCode(), removed);
+        }
+    }
+
+    public long count() {
+        return byId.size();
+    }
+
+    public Optional<Product> findByBarCode(Long barCode) {
+        return Optional.ofNullable(byBarCode.get(barCode)).map(this::copy);
+    }
+
+    public boolean existsByBarCode(Long barCode) {
+        return byBarCode.containsKey(barCode);
+    }
+
+    public List<Product> findByBarCodeIn(Collection<Long> barCodes) {
+        return barCodes.stream()
+                .map(byBarCode::get)
+                .filter(product -> product != null)
+                .map(this::copy)
+                .toList();
+    }
+
+    public Page<Product> findAll(Pageable pageable) {
+        List<Product> content = byId.values().stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(this::copy)
+                .toList();
+
+        return new PageImpl<>(content, pageable, byId.size());
+    }
+
+    public Optional<Product> decrementQuantity(Long barCode, Long quantity) {
+        Product[] updated = new Product[1];
+
+        byBarCode.computeIfPresent(barCode, (code, product) -> {
+            if (product.getQuantity() < quantity) {
+                return product;
+            }
+
+            updated[0] = product.toBuilder()
+                    .quantity(product.getQuantity() - quantity)
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            byId.put(updated[0].getId(), updated[0]);
+
+            return updated[0];
+        });
+
+        return Optional.ofNullable(updated[0]).map(this::copy);
+    }
+
+    public Set<Long> adjustQuantities(Map<Long, Long> deltas) {
+        Set<Long> rejected = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        deltas.forEach((barCode, delta) -> {
+            if (delta == 0) {
+                return;
+            }
+
+            boolean[] applied = new boolean[1];
+
+            byBarCode.computeIfPresent(barCode, (code, product) -> {
+                if (product.getQuantity() + delta < 0) {
+                    return product;
+                }
+
+                Product updated = product.toBuilder()
+                        .quantity(product.getQuantity() + delta)
+                        .updatedAt(now)
+                        .build();
+                byId.put(updated.getId(), updated);
+                applied[0] = true;
+
+                return updated;
+            });
+
+            if (delta < 0 && !applied[0]) {
+                rejected.add(barCode);
+            }
+        });
+
+        return rejected;
+    }
+
+    // Stock stays on the stored products here, so there is no separate stock document to write or join.
+    public void saveStock(Long barCode, Long quantity) {
+        byBarCode.computeIfPresent(barCode, (code, product) -> {
+            Product updated = product.toBuilder()
+                    .quantity(quantity)
+                    .build();
+            byId.put(updated.getId(), updated);
+
+            return updated;
+        });
+    }
+
+    public void deleteStock(Long barCode) {
+    }
+
+    public Product withStock(Product product) {
+        return product;
+    }
+
+    public List<Product> withStock(List<Product> products) {
+        return products;
+    }
+
+    private Product copy(Product product) {
+        return product.toBuilder().build();
+    }
+}
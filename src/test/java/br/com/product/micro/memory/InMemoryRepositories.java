@@ -0,0 +1,124 @@
+package br.com.product.micro.memory;
+
+import br.com.product.micro.repository.IProcessedEventRepository;
+import br.com.product.micro.repository.IProductRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes the in-memory stores through the repository interfaces, so services and consumers run unchanged.
+ * Only the methods the store implements are supported; anything else fails loudly instead of silently doing nothing.
+ */
+public final class InMemoryRepositories {
+    private InMemoryRepositories() {
+    }
+
+    public static IProductRepository products(InMemoryProductStore store) {
+        return products(store, Duration.ZERO);
+    }
+
+    /**
+     * Blocks every repository call for {@code roundTrip}, standing in for the wait on a MongoDB reply.
+     */
+    public static IProductRepository products(InMemoryProductStore store, Duration roundTrip) {
+        return proxy(IProductRepository.class, store, roundTrip);
+    }
+
+    public static ISaleReservationRepository reservations(InMemoryReservationStore store) {
+        return proxy(ISaleReservationRepository.class, store, Duration.ZERO);
+    }
+
+    public static IProcessedEventRepository processedEvents(InMemoryProcessedEventStore store) {
+        return proxy(IProcessedEventRepository.class, store, Duration.ZERO);
+    }
+
+    private static <T> T proxy(Class<T> repository, Object store, Duration roundTrip) {
+        return repository.cast(Proxy.newProxyInstance(
+                repository.getClassLoader(),
+                new Class<?>[]{repository},
+                new StoreInvocationHandler(repository, store, roundTrip)
+        ));
+    }
+
+    private static final class StoreInvocationHandler implements InvocationHandler {
+        private final Class<?> repository;
+        private final Object store;
+        private final Duration roundTrip;
+        private final Map<Method, List<Method>> candidates = new ConcurrentHashMap<>();
+
+        private StoreInvocationHandler(Class<?> repository, Object store, Duration roundTrip) {
+            this.repository = repository;
+            this.store = store;
+            this.roundTrip = roundTrip;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "InMemory" + repository.getSimpleName();
+                };
+            }
+
+            Object[] arguments = args == null ? new Object[0] : args;
+            Method target = resolve(method, arguments);
+
+            if (!roundTrip.isZero()) {
+                Thread.sleep(roundTrip);
+            }
+
+            try {
+                return target.invoke(store, arguments);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+
+        private Method resolve(Method method, Object[] arguments) {
+            List<Method> overloads = candidates.computeIfAbsent(method, key -> Arrays.stream(store.getClass().getMethods())
+                    .filter(candidate -> candidate.getName().equals(key.getName()))
+                    .filter(candidate -> candidate.getParameterCount() == key.getParameterCount())
+                    .toList());
+
+            for (Method candidate : overloads) {
+                if (accepts(candidate.getParameterTypes(), arguments)) {
+                    return candidate;
+                }
+            }
+
+            throw new UnsupportedOperationException(repository.getSimpleName() + "." + method.getName() + " is not available in memory");
+        }
+
+        private boolean accepts(Class<?>[] parameterTypes, Object[] arguments) {
+            for (int index = 0; index < parameterTypes.length; index++) {
+                Class<?> type = parameterTypes[index].isPrimitive()
+                        ? boxed(parameterTypes[index])
+                        : parameterTypes[index];
+
+                if (arguments[index] != null && !type.isInstance(arguments[index])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private Class<?> boxed(Class<?> primitive) {
+            return primitive == boolean.class ? Boolean.class
+                    : primitive == int.class ? Integer.class
+                    : primitive == long.class ? Long.class
+                    : primitive;
+        }
+    }
+}
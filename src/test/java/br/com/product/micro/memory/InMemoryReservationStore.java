@@ -0,0 +1,252 @@
+package br.com.product.micro.memory;
+
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Reservation collection stand-in keyed by sale id, mirroring the unique saleId index and the conditional
+ * status transitions of {@code ISaleReservationTransitionRepositoryImpl}.
+ */
+public class InMemoryReservationStore {
+    private final Map<String, SaleReservation> bySaleId = new ConcurrentHashMap<>();
+    private volatile BiConsumer<String, ReservationStatus> changeListener = (saleId, status) -> {
+    };
+
+    /**
+     * Called with the sale id and new status after every insert or status transition.
+     */
+    public void onChange(BiConsumer<String, ReservationStatus> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    public void clear() {
+        bySaleId.clear();
+    }
+
+    /**
+     * Puts a sale back into the given status without going through a listener, so a benchmark can replay a branch.
+     */
+    public void reset(String saleId, ReservationStatus status) {
+        bySaleId.computeIfPresent(saleId, (id, reservation) -> {
+            SaleReservation restored = copy(reservation);
+            restored.setStatus(status);
+            return restored;
+        });
+    }
+
+    public void remove(String saleId) {
+        bySaleId.remove(saleId);
+    }
+
+    public SaleReservation insert(SaleReservation reservation) {
+        SaleReservation stored = copy(reservation);
+        LocalDateTime now = LocalDateTime.now();
+
+        stored.setId(reservation.getId() == null ? ObjectId.get().toHexString() : reservation.getId());
+        stored.setCreatedAt(now);
+        stored.setUpdatedAt(now);
+
+        if (bySaleId.putIfAbsent(stored.getSaleId(), stored) != null) {
+            throw new DuplicateKeyException("Duplicate saleId " + stored.getSaleId());
+        }
+
+        changeListener.accept(stored.getSaleId(), stored.getStatus());
+
+        return copy(stored);
+    }
+
+    public List<SaleReservation> insert(Iterable<SaleReservation> reservations) {
+        List<SaleReservation> inserted = new ArrayList<>();
+        reservations.forEach(reservation -> inserted.add(insert(reservation)));
+
+        return inserted;
+    }
+
+    public Optional<SaleReservation> findBySaleId(String saleId) {
+        return Optional.ofNullable(bySaleId.get(saleId)).map(this::copy);
+    }
+
+    public boolean transition(String saleId, ReservationStatus from, ReservationStatus to) {
+        return update(saleId, List.of(from), to, null, null) != null;
+    }
+
+    public Optional<SaleReservation> claim(String saleId, Collection<ReservationStatus> from, ReservationStatus to) {
+        return Optional.ofNullable(update(saleId, from, to, null, false)).map(this::copy);
+    }
+
+    public List<SaleReservation> claimAll(Collection<String> saleIds, Collection<ReservationStatus> from, ReservationStatus to) {
+        String transitionId = ObjectId.get().toHexString();
+        List<SaleReservation> claimed = new ArrayList<>();
+
+        saleIds.forEach(saleId -> {
+            SaleReservation reservation = update(saleId, from, to, transitionId, false);
+
+            if (reservation != null) {
+                claimed.add(copy(reservation));
+            }
+        });
+
+        return claimed;
+    }
+
+    public List<SaleReservation> claimExpired(LocalDateTime expiredBefore, LocalDateTime staleClaimBefore, int limit) {
+        String transitionId = ObjectId.get().toHexString();
+        List<SaleReservation> claimed = new ArrayList<>();
+
+        for (String saleId : bySaleId.keySet()) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+
+            SaleReservation[] updated = new SaleReservation[1];
+
+            bySaleId.computeIfPresent(saleId, (id, reservation) -> {
+                boolean expired = reservation.getStatus() == ReservationStatus.RESERVED
+                        && reservation.getExpiresAt() != null
+                        && !reservation.getExpiresAt().isAfter(expiredBefore);
+                boolean staleClaim = !reservation.getUpdatedAt().isAfter(staleClaimBefore)
+                        && (reservation.getStatus() == ReservationStatus.EXPIRED && !Boolean.TRUE.equals(reservation.getRestocked())
+                        || reservation.getStatus() == ReservationStatus.CANCELED && Boolean.FALSE.equals(reservation.getRestocked()));
+
+                if (!expired && !staleClaim) {
+                    return reservation;
+                }
+
+                updated[0] = copy(reservation);
+                updated[0].setStatus(ReservationStatus.EXPIRED);
+                updated[0].setTransitionId(transitionId);
+                updated[0].setUpdatedAt(LocalDateTime.now());
+
+                return updated[0];
+            });
+
+            if (updated[0] != null) {
+                changeListener.accept(saleId, ReservationStatus.EXPIRED);
+                claimed.add(copy(updated[0]));
+            }
+        }
+
+        return claimed;
+    }
+
+    public void deleteAllById(Iterable<String> ids) {
+        Set<String> removed = new HashSet<>();
+        ids.forEach(removed::add);
+
+        bySaleId.values().removeIf(reservation -> removed.contains(reservation.getId()));
+    }
+
+    public long markRestocked(Collection<String> ids, ReservationStatus status) {
+        Set<String> claimed = new HashSet<>(ids);
+        long marked = 0;
+
+        for (Map.Entry<String, SaleReservation> entry : bySaleId.entrySet()) {
+            SaleReservation reservation = entry.getValue();
+
+            if (claimed.contains(reservation.getId()) && reservation.getStatus() == status) {
+                SaleReservation updated = copy(reservation);
+                updated.setRestocked(true);
+                updated.setUpdatedAt(LocalDateTime.now());
+
+                if (bySaleId.replace(entry.getKey(), reservation, updated)) {
+                    marked++;
+                }
+            }
+        }
+
+        return marked;
+    }
+
+    public long deleteRestocked(LocalDateTime staleClaimBefore) {
+        long[] deleted = new long[1];
+
+        bySaleId.values().removeIf(reservation -> {
+            boolean matches = (reservation.getStatus() == ReservationStatus.EXPIRED
+                    || reservation.getStatus() == ReservationStatus.CANCELED)
+                    && !reservation.getUpdatedAt().isAfter(staleClaimBefore)
+                    && Boolean.TRUE.equals(reservation.getRestocked());
+
+            if (matches) {
+                deleted[0]++;
+            }
+
+            return matches;
+        });
+
+        return deleted[0];
+    }
+
+    public long deleteClaimed(Collection<String> ids, ReservationStatus status) {
+        Set<String> claimed = new HashSet<>(ids);
+        long[] deleted = new long[1];
+
+        bySaleId.values().removeIf(reservation -> {
+            boolean matches = claimed.contains(reservation.getId()) && reservation.getStatus() == status;
+
+            if (matches) {
+                deleted[0]++;
+            }
+
+            return matches;
+        });
+
+        return deleted[0];
+    }
+
+    private SaleReservation update(String saleId, Collection<ReservationStatus> from, ReservationStatus to, String transitionId, Boolean restocked) {
+        SaleReservation[] updated = new SaleReservation[1];
+
+        bySaleId.computeIfPresent(saleId, (id, reservation) -> {
+            if (!from.contains(reservation.getStatus())) {
+                return reservation;
+            }
+
+            updated[0] = copy(reservation);
+            updated[0].setStatus(to);
+            updated[0].setUpdatedAt(LocalDateTime.now());
+
+            if (transitionId != null) {
+                updated[0].setTransitionId(transitionId);
+            }
+
+            if (restocked != null) {
+                updated[0].setRestocked(restocked);
+            }
+
+            return updated[0];
+        });
+
+        if (updated[0] != null) {
+            changeListener.accept(saleId, to);
+        }
+
+        return updated[0];
+    }
+
+    private SaleReservation copy(SaleReservation reservation) {
+        return new SaleReservation(
+                reservation.getId(),
+                reservation.getSaleId(),
+                reservation.getStatus(),
+                reservation.getItems() == null ? null : List.copyOf(reservation.getItems()),
+                reservation.getTransitionId(),
+                reservation.getRestocked(),
+                reservation.getExpiresAt(),
+                reservation.getCreatedAt(),
+                reservation.getUpdatedAt()
+        );
+    }
+}
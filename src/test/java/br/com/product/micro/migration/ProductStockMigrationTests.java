@@ -0,0 +1,91 @@
+package br.com.product.micro.migration;
+
+import br.com.product.micro.domain.ProductStock;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.MongoVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ProductStockMigrationTests {
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // The driver refuses servers older than 4.2, which is more than the in-memory server reports by default.
+        mongoServer = new MongoServer(new MemoryBackend().version(new MongoVersion() {
+            @Override
+            public List<Integer> getVersionArray() {
+                return List.of(4, 2, 0);
+            }
+
+            @Override
+            public int getWireVersion() {
+                return 8;
+            }
+        }));
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "migration");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void movesLegacyQuantitiesIntoStock() {
+        for (long barCode = 1; barCode <= 5; barCode++) {
+            insertLegacyProduct(barCode, barCode * 10);
+        }
+
+        new ProductStockMigration(mongoTemplate, true, 2).afterSingletonsInstantiated();
+
+        assertThat(mongoTemplate.findAll(ProductStock.class))
+                .extracting(ProductStock::getBarCode, ProductStock::getQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple(1L, 10L),
+                        tuple(2L, 20L),
+                        tuple(3L, 30L),
+                        tuple(4L, 40L),
+                        tuple(5L, 50L)
+                );
+        assertThat(mongoTemplate.findAll(Document.class, "products"))
+                .allSatisfy(product -> assertThat(product).doesNotContainKey("quantity"));
+    }
+
+    @Test
+    void skipsTheScanOnceCompleted() {
+        insertLegacyProduct(1L, 10L);
+        new ProductStockMigration(mongoTemplate, true, 500).afterSingletonsInstantiated();
+
+        insertLegacyProduct(2L, 20L);
+        new ProductStockMigration(mongoTemplate, true, 500).afterSingletonsInstantiated();
+
+        assertThat(mongoTemplate.findAll(ProductStock.class))
+                .extracting(ProductStock::getBarCode)
+                .containsExactly(1L);
+        assertThat(mongoTemplate.findAll(Document.class, "migrations"))
+                .extracting(marker -> marker.get("_id"))
+                .containsExactly("product-stock");
+    }
+
+    private void insertLegacyProduct(long barCode, long quantity) {
+        mongoTemplate.insert(new Document("barCode", barCode).append("name", "Product " + barCode).append("quantity", quantity), "products");
+    }
+}
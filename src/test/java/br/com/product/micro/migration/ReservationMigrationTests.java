@@ -0,0 +1,128 @@
+package br.com.product.micro.migration;
+
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.MongoVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationMigrationTests {
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private MessageListenerContainer container;
+    private ReservationMigration reservationMigration;
+
+    @BeforeEach
+    void setUp() {
+        // The driver refuses servers older than 4.2, which is more than the in-memory server reports by default.
+        mongoServer = new MongoServer(new MemoryBackend().version(new MongoVersion() {
+            @Override
+            public List<Integer> getVersionArray() {
+                return List.of(4, 2, 0);
+            }
+
+            @Override
+            public int getWireVersion() {
+                return 8;
+            }
+        }));
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "migration");
+
+        container = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry listenerRegistry = mock(KafkaListenerEndpointRegistry.class);
+        when(listenerRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+
+        reservationMigration = new ReservationMigration(mongoTemplate, listenerRegistry, true, 2, Duration.ZERO, Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationMigration.shutdown();
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void keepsTheListenersPausedUntilEverySaleIsMigrated() throws InterruptedException {
+        for (int sale = 1; sale <= 5; sale++) {
+            insertLegacySale("reserved", "sale-" + sale);
+        }
+        mongoTemplate.insert(new Document("saleId", "sale-6").append("status", "PURCHASED").append("products", List.of(legacyLine())), "reservations");
+
+        reservationMigration.start();
+
+        for (int attempt = 0; attempt < 100 && !reservationMigration.isComplete(); attempt++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(reservationMigration.isComplete()).isTrue();
+        InOrder order = inOrder(container);
+        order.verify(container).pause();
+        order.verify(container).resume();
+
+        assertThat(mongoTemplate.findAll(Document.class, "reserved")).isEmpty();
+        assertThat(mongoTemplate.findAll(SaleReservation.class)).hasSize(6).allSatisfy(reservation -> {
+            assertThat(reservation.getItems()).extracting(Item::getBarCode).containsExactly(7L);
+            assertThat(reservation.getExpiresAt() != null).isEqualTo(reservation.getStatus() == ReservationStatus.RESERVED);
+        });
+        assertThat(mongoTemplate.findAll(Document.class, "reservations"))
+                .allSatisfy(reservation -> assertThat(reservation).doesNotContainKey("products"));
+    }
+
+    @Test
+    void migratesASaleThatIsReadBeforeTheRunReachesIt() {
+        insertLegacySale("reserved", "sale-1");
+        insertLegacySale("reserved", "sale-2");
+
+        reservationMigration.migrateSale("sale-1");
+
+        SaleReservation migrated = mongoTemplate.findOne(new Query(Criteria.where("saleId").is("sale-1")), SaleReservation.class);
+        assertThat(migrated).isNotNull();
+        assertThat(migrated.getStatus()).isEqualTo(ReservationStatus.RESERVED);
+        assertThat(migrated.getItems()).extracting(Item::getQuantity).containsExactly(3L);
+        assertThat(migrated.getExpiresAt()).isNotNull();
+        assertThat(mongoTemplate.findAll(Document.class, "reserved"))
+                .extracting(legacy -> legacy.getString("saleId"))
+                .containsExactly("sale-2");
+        verify(container, never()).pause();
+    }
+
+    private void insertLegacySale(String collection, String saleId) {
+        mongoTemplate.insert(new Document("saleId", saleId).append("products", List.of(legacyLine())), collection);
+    }
+
+    private Document legacyLine() {
+        return new Document("_id", "product-7")
+                .append("barCode", 7L)
+                .append("name", "Legacy product")
+                .append("value", 10.0)
+                .append("quantity", 3L);
+    }
+}
@@ -0,0 +1,146 @@
+package br.com.product.micro.repository;
+
+import br.com.product.micro.domain.Product;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.MongoVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IProductStockRepositoryImplTests {
+    private static final long BAR_CODE = 7891234567890L;
+    private static final int THREADS = 8;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private IProductStockRepositoryImpl productStockRepository;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // The driver refuses servers older than 4.2, which is more than the in-memory server reports by default.
+        mongoServer = new MongoServer(new MemoryBackend().version(new MongoVersion() {
+            @Override
+            public List<Integer> getVersionArray() {
+                return List.of(4, 2, 0);
+            }
+
+            @Override
+            public int getWireVersion() {
+                return 8;
+            }
+        }));
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+
+        mongoTemplate = new MongoTemplate(mongoClient, "stock");
+        mongoTemplate.insert(Product.builder().barCode(BAR_CODE).name("Hot product").value(10.0).build());
+
+        productStockRepository = new IProductStockRepositoryImpl(mongoTemplate);
+        productStockRepository.saveStock(BAR_CODE, 1_000L);
+        productStockRepository.enableStriping(BAR_CODE, 4);
+
+        executor = Executors.newFixedThreadPool(THREADS + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void concurrentDecrementsSellExactlyTheStock() throws Exception {
+        AtomicLong sold = new AtomicLong();
+        List<Future<?>> sellers = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            sellers.add(executor.submit(() -> sellUntilSoldOut(sold, () -> false)));
+        }
+
+        for (Future<?> seller : sellers) {
+            seller.get(60, TimeUnit.SECONDS);
+        }
+
+        assertThat(sold).hasValue(1_000L);
+        assertThat(quantity()).isZero();
+    }
+
+    @Test
+    void rebalancesAndRestocksDuringSalesWithoutLosingUnits() throws Exception {
+        AtomicLong sold = new AtomicLong();
+        AtomicLong restocked = new AtomicLong();
+        AtomicBoolean restocking = new AtomicBoolean(true);
+        List<Future<?>> sellers = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            sellers.add(executor.submit(() -> sellUntilSoldOut(sold, restocking::get)));
+        }
+
+        Future<?> keeper = executor.submit(() -> {
+            for (int round = 0; round < 50; round++) {
+                productStockRepository.adjustQuantities(Map.of(BAR_CODE, 7L));
+                restocked.addAndGet(7L);
+                productStockRepository.rebalanceStripes(BAR_CODE);
+            }
+
+            restocking.set(false);
+        });
+
+        keeper.get(60, TimeUnit.SECONDS);
+
+        for (Future<?> seller : sellers) {
+            seller.get(60, TimeUnit.SECONDS);
+        }
+
+        assertThat(restocked).hasValue(350L);
+        assertThat(sold.get() + quantity()).isEqualTo(1_000L + restocked.get());
+        assertThat(quantity()).isZero();
+    }
+
+    private void sellUntilSoldOut(AtomicLong sold, BooleanSupplier restocking) {
+        int misses = 0;
+
+        // A single unit can miss while a rebalance or a spread take holds units in flight, so a few misses in a row
+        // are needed before the stock counts as sold out.
+        while (restocking.getAsBoolean() || misses < 5) {
+            long quantity = ThreadLocalRandom.current().nextLong(1, 6);
+
+            if (productStockRepository.decrementQuantity(BAR_CODE, quantity).isPresent()) {
+                sold.addAndGet(quantity);
+                misses = 0;
+            } else if (quantity == 1) {
+                misses++;
+            }
+        }
+    }
+
+    private long quantity() {
+        Product product = mongoTemplate.findOne(new Query(Criteria.where("barCode").is(BAR_CODE)), Product.class);
+
+        return productStockRepository.withStock(product).getQuantity();
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.product.micro.scheduler;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ReservationStatus;
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.memory.InMemoryReservationStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationExpirySweeperTests {
+    private InMemoryProductStore productStore;
+    private InMemoryReservationStore reservationStore;
+    private ReservationExpirySweeper reservationExpirySweeper;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new InMemoryProductStore();
+        reservationStore = new InMemoryReservationStore();
+
+        productStore.insert(Product.builder().barCode(1L).quantity(5L).value(10.0).build());
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Every claim counts as stale at once, as if the sweep that made it had died long ago.
+        reservationExpirySweeper = new ReservationExpirySweeper(
+                InMemoryRepositories.reservations(reservationStore),
+                InMemoryRepositories.products(productStore),
+                new ProductCache(meterRegistry, false, 10, Duration.ofSeconds(5)),
+                Optional.empty(),
+                meterRegistry,
+                500,
+                20,
+                Duration.ZERO
+        );
+    }
+
+    @Test
+    void restocksAndDeletesExpiredReservations() {
+        reservationStore.insert(reservation("sale-1", ReservationStatus.RESERVED, null, LocalDateTime.now().minusMinutes(1)));
+        reservationStore.insert(reservation("sale-2", ReservationStatus.RESERVED, null, LocalDateTime.now().plusMinutes(30)));
+
+        reservationExpirySweeper.sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(7L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+        assertThat(reservationStore.findBySaleId("sale-2")).get()
+                .extracting(SaleReservation::getStatus)
+                .isEqualTo(ReservationStatus.RESERVED);
+    }
+
+    @Test
+    void deletesAStaleClaimThatWasRestockedWithoutRestockingItAgain() {
+        reservationStore.insert(reservation("sale-1", ReservationStatus.EXPIRED, true, LocalDateTime.now().minusMinutes(1)));
+
+        reservationExpirySweeper.sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+    }
+
+    @Test
+    void restocksAStaleClaimThatNeverWas() {
+        reservationStore.insert(reservation("sale-1", ReservationStatus.EXPIRED, null, LocalDateTime.now().minusMinutes(1)));
+
+        reservationExpirySweeper.sweep();
+        reservationExpirySweeper.sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(7L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+    }
+
+    @Test
+    void takesOverACanceledClaimWhoseRestockFailed() {
+        reservationStore.insert(reservation("sale-1", ReservationStatus.CANCELED, false, LocalDateTime.now().plusMinutes(30)));
+        reservationStore.insert(reservation("sale-2", ReservationStatus.CANCELED, true, LocalDateTime.now().plusMinutes(30)));
+
+        reservationExpirySweeper.sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(7L);
+        assertThat(reservationStore.findBySaleId("sale-1")).isEmpty();
+        assertThat(reservationStore.findBySaleId("sale-2")).isEmpty();
+    }
+
+    @Test
+    void leavesSalesCanceledBeforeTheRestockFlagAlone() {
+        reservationStore.insert(reservation("sale-1", ReservationStatus.CANCELED, null, LocalDateTime.now().plusMinutes(30)));
+
+        reservationExpirySweeper.sweep();
+
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(reservationStore.findBySaleId("sale-1")).get()
+                .extracting(SaleReservation::getStatus)
+                .isEqualTo(ReservationStatus.CANCELED);
+    }
+
+    private SaleReservation reservation(String saleId, ReservationStatus status, Boolean restocked, LocalDateTime expiresAt) {
+        return SaleReservation.builder()
+                .saleId(saleId)
+                .status(status)
+                .items(List.of(Item.builder().barCode(1L).value(10.0).quantity(2L).build()))
+                .restocked(restocked)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
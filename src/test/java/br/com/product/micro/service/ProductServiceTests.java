@@ -0,0 +1,105 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.BasketPurchase;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.PurchaseLine;
+import br.com.product.micro.domain.PurchaseLineStatus;
+import br.com.product.micro.dto.request.PurchaseProductDto;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTests {
+    private final List<PurchaseProductDto> basket = List.of(
+            new PurchaseProductDto(1L, 2L),
+            new PurchaseProductDto(2L, 9L),
+            new PurchaseProductDto(3L, 1L)
+    );
+
+    private MeterRegistry meterRegistry;
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productCache = new ProductCache(meterRegistry, false, 10, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void returnsTheStockOfTheOtherLinesWhenALineIsRejected() {
+        InMemoryProductStore productStore = new InMemoryProductStore();
+        productStore.insert(Product.builder().barCode(1L).quantity(5L).value(10.0).build());
+        productStore.insert(Product.builder().barCode(2L).quantity(1L).value(20.0).build());
+
+        BasketPurchase purchase = productService(InMemoryRepositories.products(productStore), Optional.empty())
+                .removeProductQuantities(basket);
+
+        assertThat(purchase.purchased()).isFalse();
+        assertThat(purchase.lines())
+                .extracting(PurchaseLine::status)
+                .containsExactly(PurchaseLineStatus.ROLLED_BACK, PurchaseLineStatus.INSUFFICIENT, PurchaseLineStatus.NOT_FOUND);
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+        assertThat(productStore.findByBarCode(2L)).get().extracting(Product::getQuantity).isEqualTo(1L);
+    }
+
+    @Test
+    void rollsTheTransactionBackInsteadOfUndoingLines() {
+        IProductRepository productRepository = mock(IProductRepository.class);
+        when(productRepository.adjustQuantities(anyMap())).thenReturn(Set.of(2L));
+        when(productRepository.findByBarCodeIn(any())).thenReturn(List.of(Product.builder().barCode(2L).build()));
+
+        MongoTransactionManager transactionManager = mock(MongoTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        BasketPurchase purchase = productService(productRepository, Optional.of(transactionManager))
+                .removeProductQuantities(basket);
+
+        assertThat(purchase.purchased()).isFalse();
+        assertThat(purchase.lines())
+                .extracting(PurchaseLine::status)
+                .containsExactly(PurchaseLineStatus.ROLLED_BACK, PurchaseLineStatus.INSUFFICIENT, PurchaseLineStatus.ROLLED_BACK);
+
+        verify(productRepository, times(1)).adjustQuantities(Map.of(1L, -2L, 2L, -9L, 3L, -1L));
+        ArgumentCaptor<TransactionStatus> status = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager).commit(status.capture());
+        assertThat(status.getValue().isRollbackOnly()).isTrue();
+    }
+
+    private ProductService productService(IProductRepository productRepository, Optional<MongoTransactionManager> transactionManager) {
+        ProductStockLedger productStockLedger = new ProductStockLedger(
+                productRepository,
+                new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                meterRegistry,
+                false,
+                Duration.ofMillis(2),
+                64,
+                Duration.ofSeconds(1)
+        );
+
+        return new ProductService(productRepository, productCache, productStockLedger, transactionManager, 500, 64);
+    }
+}
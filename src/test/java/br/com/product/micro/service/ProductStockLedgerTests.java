@@ -0,0 +1,173 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.memory.InMemoryProductStore;
+import br.com.product.micro.memory.InMemoryRepositories;
+import br.com.product.micro.metrics.MongoOperationMetrics;
+import br.com.product.micro.repository.IProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProductStockLedgerTests {
+    private InMemoryProductStore productStore;
+    private IProductRepository productRepository;
+    private CountDownLatch releaseFirst;
+    private MeterRegistry meterRegistry;
+    private ProductStockLedger productStockLedger;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new InMemoryProductStore();
+        IProductRepository inMemory = InMemoryRepositories.products(productStore);
+
+        // The first decrement is held back, so the purchases arriving meanwhile queue up behind it.
+        releaseFirst = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        productRepository = mock(IProductRepository.class, delegatesTo(inMemory));
+        doAnswer(invocation -> {
+            if (first.compareAndSet(true, false)) {
+                releaseFirst.await(10, TimeUnit.SECONDS);
+            }
+
+            return inMemory.decrementQuantity(invocation.getArgument(0), invocation.getArgument(1));
+        }).when(productRepository).decrementQuantity(eq(1L), anyLong());
+
+        meterRegistry = new SimpleMeterRegistry();
+        productStockLedger = new ProductStockLedger(
+                productRepository,
+                new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                meterRegistry,
+                true,
+                Duration.ofSeconds(10),
+                64,
+                Duration.ofSeconds(10)
+        );
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sendsALonePurchaseStraightThrough() {
+        productStore.insert(Product.builder().barCode(2L).quantity(5L).value(10.0).build());
+
+        long startedAt = System.nanoTime();
+        Optional<Product> updated = productStockLedger.decrement(2L, 2L);
+
+        // The max-delay of ten seconds only applies behind a decrement in flight.
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(5));
+        assertThat(updated).get().extracting(Product::getQuantity).isEqualTo(3L);
+    }
+
+    @Test
+    void groupsThePurchasesWaitingBehindAFlush() throws Exception {
+        productStore.insert(Product.builder().barCode(1L).quantity(10L).value(10.0).build());
+
+        Future<Optional<Product>> held = executor.submit(() -> productStockLedger.decrement(1L, 1L));
+        List<Future<Optional<Product>>> queued = queueBehind(3, 2L);
+
+        releaseFirst.countDown();
+
+        assertThat(held.get(10, TimeUnit.SECONDS)).isPresent();
+        for (Future<Optional<Product>> purchase : queued) {
+            assertThat(purchase.get(10, TimeUnit.SECONDS)).isPresent();
+        }
+
+        verify(productRepository, times(1)).decrementQuantity(1L, 6L);
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(3L);
+        assertThat(meterRegistry.summary("stock.ledger.group.size").max()).isEqualTo(3.0);
+    }
+
+    @Test
+    void servesAGroupInArrivalOrderAsFarAsTheStockGoes() throws Exception {
+        productStore.insert(Product.builder().barCode(1L).quantity(7L).value(10.0).build());
+
+        Future<Optional<Product>> held = executor.submit(() -> productStockLedger.decrement(1L, 1L));
+        List<Future<Optional<Product>>> queued = queueBehind(3, 3L);
+
+        releaseFirst.countDown();
+
+        assertThat(held.get(10, TimeUnit.SECONDS)).isPresent();
+        long served = 0;
+        for (Future<Optional<Product>> purchase : queued) {
+            served += purchase.get(10, TimeUnit.SECONDS).isPresent() ? 1 : 0;
+        }
+
+        // Six units are left after the held purchase, enough for two of the three.
+        assertThat(served).isEqualTo(2);
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(0L);
+        assertThat(meterRegistry.counter("stock.ledger.group.partial").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void takesAPurchaseOutOfAGroupThatWaitsTooLong() throws Exception {
+        productStore.insert(Product.builder().barCode(1L).quantity(10L).value(10.0).build());
+        productStockLedger = new ProductStockLedger(
+                productRepository,
+                new MongoOperationMetrics(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                meterRegistry,
+                true,
+                Duration.ofSeconds(10),
+                64,
+                Duration.ofMillis(300)
+        );
+
+        Future<Optional<Product>> held = executor.submit(() -> productStockLedger.decrement(1L, 1L));
+        Future<Optional<Product>> waiting = queueBehind(1, 2L).get(0);
+        Future<Optional<Product>> joined = executor.submit(() -> productStockLedger.decrement(1L, 2L));
+
+        // The group's first purchase waits up to max-delay for the held decrement; the one that joined it gives up
+        // after max-wait and is decremented on its own.
+        assertThat(joined.get(5, TimeUnit.SECONDS)).isPresent();
+        assertThat(held).isNotDone();
+        assertThat(waiting).isNotDone();
+
+        releaseFirst.countDown();
+
+        assertThat(held.get(10, TimeUnit.SECONDS)).isPresent();
+        assertThat(waiting.get(10, TimeUnit.SECONDS)).isPresent();
+        assertThat(productStore.findByBarCode(1L)).get().extracting(Product::getQuantity).isEqualTo(5L);
+    }
+
+    private List<Future<Optional<Product>>> queueBehind(int purchases, long quantity) throws InterruptedException {
+        // Lets the held purchase reach the repository before the others arrive.
+        Thread.sleep(200);
+
+        List<Future<Optional<Product>>> queued = new ArrayList<>();
+
+        for (int purchase = 0; purchase < purchases; purchase++) {
+            queued.add(executor.submit(() -> productStockLedger.decrement(1L, quantity)));
+        }
+
+        Thread.sleep(200);
+
+        return queued;
+    }
+}
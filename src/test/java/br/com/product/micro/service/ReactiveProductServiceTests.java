@@ -0,0 +1,62 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.cache.ProductCache;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.exception.ProductBatchSizeExceededException;
+import br.com.product.micro.repository.IReactiveProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveProductServiceTests {
+    private IReactiveProductRepository productRepository;
+    private ReactiveProductService reactiveProductService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(IReactiveProductRepository.class);
+        when(productRepository.withStock(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Product>>getArgument(0)));
+
+        ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), false, 10, Duration.ofSeconds(5));
+        reactiveProductService = new ReactiveProductService(productRepository, productCache, 500, 50);
+    }
+
+    @Test
+    void readsTheStockOfAPageInBuffers() {
+        List<Product> page = LongStream.rangeClosed(1, 120)
+                .mapToObj(barCode -> Product.builder().barCode(barCode).build())
+                .toList();
+        when(productRepository.findAllBy(PageRequest.of(0, 120))).thenReturn(Flux.fromIterable(page));
+
+        List<Product> listed = reactiveProductService.listProduct(0, 120).collectList().block();
+
+        assertThat(listed).extracting(Product::getBarCode).containsExactlyElementsOf(page.stream().map(Product::getBarCode).toList());
+        verify(productRepository, times(3)).withStock(anyList());
+    }
+
+    @Test
+    void rejectsAPageLargerThanTheBatchSize() {
+        assertThatThrownBy(() -> reactiveProductService.listProduct(0, 501).blockLast())
+                .isInstanceOf(ProductBatchSizeExceededException.class)
+                .hasMessage("The page size must be between 1 and 500!");
+        assertThatThrownBy(() -> reactiveProductService.listProduct(0, 0).blockLast())
+                .isInstanceOf(ProductBatchSizeExceededException.class);
+        verify(productRepository, never()).findAllBy(any());
+    }
+}
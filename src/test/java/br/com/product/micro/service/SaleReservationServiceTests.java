@@ -0,0 +1,60 @@
+package br.com.product.micro.service;
+
+import br.com.product.micro.domain.Item;
+import br.com.product.micro.domain.Product;
+import br.com.product.micro.domain.ProductLookup;
+import br.com.product.micro.domain.ReservationLine;
+import br.com.product.micro.domain.SaleReservation;
+import br.com.product.micro.migration.ReservationMigration;
+import br.com.product.micro.repository.IDeliveredArchiveRepository;
+import br.com.product.micro.repository.ISaleReservationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SaleReservationServiceTests {
+    @Test
+    void looksUpTheProductsOfALargeSaleInBatches() {
+        IProductService productService = mock(IProductService.class);
+        when(productService.getProducts(anyList())).thenAnswer(invocation -> {
+            List<Long> codes = invocation.getArgument(0);
+            assertThat(codes).hasSizeLessThanOrEqualTo(2);
+
+            Map<Long, Product> stored = codes.stream()
+                    .collect(Collectors.toMap(Function.identity(), code -> Product.builder().barCode(code).build()));
+            return ProductLookup.of(codes, stored);
+        });
+
+        SaleReservationService saleReservationService = new SaleReservationService(
+                mock(ISaleReservationRepository.class),
+                mock(IDeliveredArchiveRepository.class),
+                productService,
+                mock(ReservationMigration.class),
+                2
+        );
+        SaleReservation reservation = SaleReservation.builder()
+                .saleId("sale-1")
+                .items(LongStream.rangeClosed(1, 5)
+                        .mapToObj(barCode -> Item.builder().barCode(barCode).quantity(1L).build())
+                        .toList())
+                .build();
+
+        List<ReservationLine> lines = saleReservationService.resolveItems(reservation);
+
+        verify(productService, times(3)).getProducts(anyList());
+        assertThat(lines)
+                .extracting(line -> line.product().getBarCode())
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+}